@@ -0,0 +1,149 @@
+package com.grocerylist.app.api;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.grocerylist.app.models.ChangeEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the change stream client against a stand-in backend on loopback
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChangeStreamClientTest {
+    private static final long BASE_BACKOFF_MS = 10;
+
+    private MockWebServer server;
+    private ChangeStreamClient client;
+    private final BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+    private final CountDownLatch firstConnect = new CountDownLatch(1);
+    private final CountDownLatch secondConnect = new CountDownLatch(2);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        ChangeStreamClient.Listener listener = new ChangeStreamClient.Listener() {
+            @Override
+            public void onConnected() {
+                firstConnect.countDown();
+                secondConnect.countDown();
+            }
+
+            @Override
+            public void onEvent(ChangeEvent event) {
+                events.add(event);
+            }
+        };
+        client = new ChangeStreamClient(new OkHttpClient(), server.url("/api/changes/stream"), listener, BASE_BACKOFF_MS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.stop();
+        server.shutdown();
+    }
+
+    @Test
+    public void deliversEventsInOrder() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new Sender(
+                "{\"type\":\"patch\",\"patch\":{\"id\":\"item-1\",\"fields\":{\"isCompleted\":true},\"hlc\":5,\"nodeId\":\"b\"}}",
+                "not json",
+                "{\"type\":\"list\",\"list\":{\"id\":\"list-1\",\"name\":\"Weekend\",\"hlc\":6}}")));
+
+        client.start();
+        assertTrue(firstConnect.await(5, TimeUnit.SECONDS));
+
+        ChangeEvent patch = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(patch);
+        assertEquals(ChangeEvent.TYPE_PATCH, patch.getType());
+        assertEquals("item-1", patch.getPatch().getId());
+        assertEquals(Boolean.TRUE, patch.getPatch().getFields().get("isCompleted"));
+
+        // The malformed message is skipped, not fatal
+        ChangeEvent list = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(list);
+        assertEquals("Weekend", list.getList().getName());
+        assertEquals(6, list.getHlc());
+        assertEquals(2, client.getEventsReceived());
+    }
+
+    @Test
+    public void reconnectsAfterServerCloses() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+                webSocket.close(1001, "going away");
+            }
+        }));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new Sender(
+                "{\"type\":\"item\",\"item\":{\"id\":\"item-2\",\"listId\":\"list-1\",\"name\":\"Milk\"}}")));
+
+        client.start();
+
+        assertTrue(secondConnect.await(5, TimeUnit.SECONDS));
+        ChangeEvent item = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(item);
+        assertEquals("Milk", item.getItem().getName());
+        assertTrue(client.getReconnects() >= 1);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void stopCancelsReconnect() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        client.start();
+        // Keeps retrying while the server is down
+        server.takeRequest(5, TimeUnit.SECONDS);
+        server.takeRequest(5, TimeUnit.SECONDS);
+        client.stop();
+
+        // A handshake already in flight may still land, nothing after that
+        Thread.sleep(100);
+        int requests = server.getRequestCount();
+        Thread.sleep(BASE_BACKOFF_MS * 50);
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    /**
+     * Server side of the socket: sends the given messages as soon as it opens
+     */
+    private static class Sender extends WebSocketListener {
+        private final String[] messages;
+
+        Sender(String... messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+            for (String message : messages) {
+                webSocket.send(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.grocerylist.app.api;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.rxjava3.core.Single;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory;
+import retrofit2.http.GET;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hedges a real Retrofit call against a stand-in backend on loopback, with the same
+ * synchronous call adapter the app uses
+ */
+@RunWith(AndroidJUnit4.class)
+public class LatencyTrackerTest {
+    private static final long SLOW_RESPONSE_MS = 5_000;
+
+    interface SyncService {
+        @GET("api/sync")
+        Single<Response<ResponseBody>> sync();
+    }
+
+    private MockWebServer server;
+    private SyncService service;
+    private LatencyTracker tracker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addCallAdapterFactory(RxJava3CallAdapterFactory.create())
+                .build()
+                .create(SyncService.class);
+
+        tracker = new LatencyTracker("test");
+        // Enough fast samples that a call slower than ~100ms gets hedged
+        for (int i = 0; i < 10; i++) {
+            tracker.record(50);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void slowRequestIsHedgedAndFasterAnswerWins() throws Exception {
+        server.enqueue(new MockResponse().setHeadersDelay(SLOW_RESPONSE_MS, TimeUnit.MILLISECONDS).setBody("slow"));
+        server.enqueue(new MockResponse().setBody("fast"));
+
+        long startNanos = System.nanoTime();
+        Response<ResponseBody> response = tracker.hedged(service.sync()).blockingGet();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertEquals("fast", response.body().string());
+        assertEquals(2, server.getRequestCount());
+        assertTrue("Waited " + elapsedMs + "ms for the slow primary", elapsedMs < SLOW_RESPONSE_MS);
+    }
+}
@@ -0,0 +1,122 @@
+package com.grocerylist.app.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.repository.LocalDataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writing a list must update it in place. With REPLACE the old row was deleted first,
+ * which cascade-deleted every item of the list.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GroceryDaoUpsertTest {
+    private GroceryDatabase database;
+    private GroceryDao groceryDao;
+    private LocalDataSource localDataSource;
+
+    private GroceryList list;
+    private GroceryItem milk;
+    private GroceryItem bread;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, GroceryDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        groceryDao = database.groceryDao();
+        localDataSource = new LocalDataSource(groceryDao);
+
+        list = new GroceryList("Weekly shop");
+        localDataSource.insertList(list);
+        milk = new GroceryItem(list.getId(), "Milk");
+        bread = new GroceryItem(list.getId(), "Bread");
+        localDataSource.insertItem(milk);
+        localDataSource.insertItem(bread);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void updateList_keepsItemRowsAndRowids() {
+        long milkRowid = rowidOf(milk.getId());
+        long breadRowid = rowidOf(bread.getId());
+        long listRowid = listRowidOf(list.getId());
+
+        list.setName("Weekend shop");
+        list.setUpdatedAt(list.getUpdatedAt() + 1);
+        localDataSource.updateList(list);
+
+        assertEquals("Weekend shop", groceryDao.getListById(list.getId()).getName());
+        assertEquals(listRowid, listRowidOf(list.getId()));
+        assertEquals(2, groceryDao.getItemsForListSync(list.getId()).size());
+        assertEquals(milkRowid, rowidOf(milk.getId()));
+        assertEquals(breadRowid, rowidOf(bread.getId()));
+    }
+
+    @Test
+    public void mergeNewerCloudList_keepsItemRowsAndRowids() {
+        long milkRowid = rowidOf(milk.getId());
+        long breadRowid = rowidOf(bread.getId());
+
+        GroceryList cloudList = groceryDao.getListById(list.getId());
+        cloudList.setName("Renamed on another device");
+        cloudList.setUpdatedAt(cloudList.getUpdatedAt() + 1000);
+        MergeResult result = localDataSource.mergeListsFromCloud(Collections.singletonList(cloudList));
+
+        assertEquals(1, result.updated);
+        assertEquals("Renamed on another device", groceryDao.getListById(list.getId()).getName());
+        assertEquals(2, groceryDao.getItemsForListSync(list.getId()).size());
+        assertEquals(milkRowid, rowidOf(milk.getId()));
+        assertEquals(breadRowid, rowidOf(bread.getId()));
+    }
+
+    @Test
+    public void updateItem_keepsRowid() {
+        long milkRowid = rowidOf(milk.getId());
+
+        milk.setQuantity("2");
+        localDataSource.updateItem(milk);
+
+        GroceryItem stored = groceryDao.getItemByIdSync(milk.getId());
+        assertNotNull(stored);
+        assertEquals("2", stored.getQuantity());
+        assertEquals(milkRowid, rowidOf(milk.getId()));
+    }
+
+    private long rowidOf(String itemId) {
+        return queryRowid("SELECT rowid FROM grocery_items WHERE id = ?", itemId);
+    }
+
+    private long listRowidOf(String listId) {
+        return queryRowid("SELECT rowid FROM grocery_lists WHERE id = ?", listId);
+    }
+
+    private long queryRowid(String sql, String id) {
+        try (Cursor cursor = database.query(sql, new Object[]{id})) {
+            assertTrue("Row " + id + " is missing", cursor.moveToFirst());
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.grocerylist.app;
+
+import android.app.Application;
+
+import com.grocerylist.app.api.ConnectionPrewarmer;
+import com.grocerylist.app.repository.SyncWorker;
+
+/**
+ * Process entry point. Starts warming the backend connection before the first
+ * activity is even created, so it runs in parallel with local rendering, and keeps
+ * the background sync scheduled so launches usually start from fresh data.
+ */
+public class GroceryApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ConnectionPrewarmer.prewarm(this);
+        SyncWorker.schedulePeriodic(this);
+    }
+}
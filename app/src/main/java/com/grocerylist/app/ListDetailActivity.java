@@ -80,7 +80,7 @@ public class ListDetailActivity extends AppCompatActivity {
         setupSwipeRefresh();
 
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-        viewModel.smartSync();
+        viewModel.syncList(currentListId);
     }
 
     private void setupViews() {
@@ -202,7 +202,7 @@ public class ListDetailActivity extends AppCompatActivity {
                 new ItemSwipeHandler.OnSwipeActionListener() {
                     @Override
                     public void onItemCompleteToggled(GroceryItem item) {
-                        viewModel.updateItem(item);
+                        viewModel.setItemCompleted(item, item.isCompleted());
                     }
 
                     @Override
@@ -270,7 +270,7 @@ public class ListDetailActivity extends AppCompatActivity {
     private void onItemCompleteToggle(GroceryItem item) {
         item.setCompleted(!item.isCompleted());
         item.setUpdatedAt(System.currentTimeMillis());
-        viewModel.updateItem(item);
+        viewModel.setItemCompleted(item, item.isCompleted());
     }
 
     private void onItemLongClick(GroceryItem item) {
@@ -290,7 +290,13 @@ public class ListDetailActivity extends AppCompatActivity {
 
     private void showEditItemDialog(GroceryItem item) {
         EditItemDialogFragment dialog = EditItemDialogFragment.newInstance(item);
-        dialog.setOnItemUpdatedListener(updatedItem -> viewModel.updateItem(updatedItem));
+        dialog.setOnItemUpdatedListener((original, updated) -> {
+            if (updated.getIsDeleted()) {
+                viewModel.deleteItem(updated.getId());
+            } else {
+                viewModel.updateItem(original, updated);
+            }
+        });
         dialog.show(getSupportFragmentManager(), "edit_item");
     }
 
@@ -370,9 +376,21 @@ public class ListDetailActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        viewModel.startLiveUpdates();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
         updateSyncInfo();
     }
+
+    @Override
+    protected void onStop() {
+        viewModel.stopLiveUpdates();
+        super.onStop();
+    }
 }
\ No newline at end of file
@@ -174,6 +174,7 @@ public class MainActivity extends AppCompatActivity {
         viewModel.getError().observe(this, this::onError);
         viewModel.getSyncStatus().observe(this, this::onSyncStatus);
         viewModel.getIsRefreshing().observe(this, this::onRefreshingChanged);
+        viewModel.getSyncProgress().observe(this, this::onSyncProgress);
 
         updateSyncInfo();
     }
@@ -195,6 +196,12 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void onSyncProgress(Integer percent) {
+        if (percent != null && textSyncInfo != null) {
+            textSyncInfo.setText(getString(R.string.sync_progress, percent));
+        }
+    }
+
     private void onRefreshingChanged(Boolean isRefreshing) {
         boolean refreshing = Boolean.TRUE.equals(isRefreshing);
 
@@ -280,9 +287,21 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        viewModel.startLiveUpdates();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
         updateSyncInfo();
     }
+
+    @Override
+    protected void onStop() {
+        viewModel.stopLiveUpdates();
+        super.onStop();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.grocerylist.app.api;
+
+import android.content.Context;
+
+import com.grocerylist.app.utils.Constants;
+import com.grocerylist.app.utils.JsonUtils;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.rxjava3.core.Completable;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Process-wide HTTP stack. One OkHttpClient means one connection pool
+ * and one disk cache shared by every RemoteDataSource.
+ */
+public class ApiClient {
+    private static final int TIMEOUT_SECONDS = 60;
+    private static final long CACHE_SIZE_BYTES = 10 * 1024 * 1024; // 10 MB
+    private static final String CACHE_DIR = "http_cache";
+
+    private static volatile ApiClient instance;
+
+    private final OkHttpClient okHttpClient;
+    private final Retrofit retrofit;
+    private final GroceryApiService apiService;
+    private final Resilience resilience;
+    // @Streaming calls answer once the headers are in, so this is time to first byte
+    private final LatencyTracker syncStreamLatency = new LatencyTracker("sync-stream");
+    private final LatencyTracker mutationLatency = new LatencyTracker("mutation");
+
+    public static ApiClient getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ApiClient.class) {
+                if (instance == null) {
+                    instance = new ApiClient(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ApiClient(Context context) {
+        // Create OkHttpClient with longer timeouts for cold starts
+        this.okHttpClient = new OkHttpClient.Builder()
+                .cache(new Cache(new File(context.getCacheDir(), CACHE_DIR), CACHE_SIZE_BYTES))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addInterceptor(new GzipRequestInterceptor())
+                .eventListenerFactory(NetworkTimingListener.FACTORY)
+                .build();
+
+        // Initialize Retrofit
+        this.retrofit = new Retrofit.Builder()
+                .baseUrl(Constants.BASE_URL)
+                .client(okHttpClient)
+                .addConverterFactory(CompactConverterFactory.create()) // Before Gson - it falls back to it
+                .addConverterFactory(GsonConverterFactory.create(JsonUtils.GSON))
+                .addCallAdapterFactory(RxJava3CallAdapterFactory.create())
+                .build();
+
+        this.apiService = retrofit.create(GroceryApiService.class);
+
+        // The health endpoint doubles as the breaker's recovery probe
+        this.resilience = new Resilience(new CircuitBreaker(Completable.defer(apiService::ping)));
+    }
+
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    public HttpUrl getBaseUrl() {
+        return retrofit.baseUrl();
+    }
+
+    public GroceryApiService getApiService() {
+        return apiService;
+    }
+
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    public LatencyTracker getSyncStreamLatency() {
+        return syncStreamLatency;
+    }
+
+    public LatencyTracker getMutationLatency() {
+        return mutationLatency;
+    }
+}
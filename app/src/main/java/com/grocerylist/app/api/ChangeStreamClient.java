@@ -0,0 +1,211 @@
+package com.grocerylist.app.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.grocerylist.app.models.ChangeEvent;
+import com.grocerylist.app.utils.JsonUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Long-lived WebSocket to the backend's change stream. Each text message is one
+ * ChangeEvent as JSON, so a change costs its own few bytes instead of a sync round trip.
+ *
+ * The socket is reopened after any failure or server-side close, with full-jitter
+ * exponential backoff that resets once a connection opens. Events missed while
+ * disconnected are not replayed - the listener gets onConnected() after every (re)connect
+ * and should catch up with a regular delta sync.
+ *
+ * The OkHttpClient and URL are passed in, so tests can point it at a loopback server.
+ */
+public class ChangeStreamClient {
+    private static final String TAG = "GroceryLive";
+    private static final int NORMAL_CLOSURE = 1000;
+    private static final long DEFAULT_BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60000;
+
+    /**
+     * Called on OkHttp's socket thread, in the order the server sent them
+     */
+    public interface Listener {
+        void onConnected();
+        void onEvent(ChangeEvent event);
+    }
+
+    private final OkHttpClient client;
+    private final HttpUrl url;
+    private final Listener listener;
+    private final long baseBackoffMs;
+    private final Gson gson = JsonUtils.GSON;
+    private final ScheduledExecutorService reconnectExecutor;
+
+    private boolean running;                    // Guarded by this
+    private WebSocket webSocket;                // Guarded by this
+    private ScheduledFuture<?> reconnect;       // Guarded by this
+    private int failedAttempts;                 // Guarded by this
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    public ChangeStreamClient(OkHttpClient client, HttpUrl url, Listener listener) {
+        this(client, url, listener, DEFAULT_BASE_BACKOFF_MS);
+    }
+
+    public ChangeStreamClient(OkHttpClient client, HttpUrl url, Listener listener, long baseBackoffMs) {
+        this.client = client;
+        this.url = url;
+        this.listener = listener;
+        this.baseBackoffMs = baseBackoffMs;
+        this.reconnectExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "grocery-change-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ===== LIFECYCLE =====
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        failedAttempts = 0;
+        connect();
+    }
+
+    /**
+     * Closes the socket and cancels any pending reconnect
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (reconnect != null) {
+            reconnect.cancel(false);
+            reconnect = null;
+        }
+        if (webSocket != null) {
+            webSocket.close(NORMAL_CLOSURE, "client stopped");
+            webSocket = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    private synchronized void connect() {
+        if (!running) {
+            return;
+        }
+        reconnect = null;
+        android.util.Log.d(TAG, "🔌 Opening change stream " + url);
+        webSocket = client.newWebSocket(new Request.Builder().url(url).build(), new SocketListener());
+    }
+
+    /**
+     * Called for the socket that just dropped; stale sockets from before a stop() are ignored
+     */
+    private synchronized void scheduleReconnect(WebSocket dropped) {
+        if (!running || dropped != webSocket) {
+            return;
+        }
+        webSocket = null;
+
+        failedAttempts++;
+        long cap = Math.min(MAX_BACKOFF_MS, baseBackoffMs << Math.min(failedAttempts - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        reconnects.incrementAndGet();
+        android.util.Log.w(TAG, "⚠️ Change stream lost, reconnecting in " + delay + "ms (attempt " + failedAttempts + ")");
+        reconnect = reconnectExecutor.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized boolean isCurrent(WebSocket socket) {
+        return running && socket == webSocket;
+    }
+
+    private synchronized void onOpened() {
+        failedAttempts = 0;
+    }
+
+    private class SocketListener extends WebSocketListener {
+        @Override
+        public void onOpen(@NonNull WebSocket socket, @NonNull Response response) {
+            if (!isCurrent(socket)) {
+                return;
+            }
+            onOpened();
+            android.util.Log.d(TAG, "✅ Change stream connected");
+            listener.onConnected();
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket socket, @NonNull String text) {
+            if (!isCurrent(socket)) {
+                return;
+            }
+            bytesReceived.addAndGet(text.length());
+            ChangeEvent event;
+            try {
+                event = gson.fromJson(text, ChangeEvent.class);
+            } catch (JsonParseException e) {
+                android.util.Log.w(TAG, "⚠️ Skipping malformed change event", e);
+                return;
+            }
+            if (event != null && event.getType() != null) {
+                eventsReceived.incrementAndGet();
+                listener.onEvent(event);
+            }
+        }
+
+        @Override
+        public void onClosing(@NonNull WebSocket socket, int code, @NonNull String reason) {
+            socket.close(NORMAL_CLOSURE, null);
+        }
+
+        @Override
+        public void onClosed(@NonNull WebSocket socket, int code, @NonNull String reason) {
+            scheduleReconnect(socket);
+        }
+
+        @Override
+        public void onFailure(@NonNull WebSocket socket, @NonNull Throwable t, @Nullable Response response) {
+            scheduleReconnect(socket);
+        }
+    }
+
+    // ===== STATS =====
+
+    public long getEventsReceived() {
+        return eventsReceived.get();
+    }
+
+    /**
+     * Payload characters received, a close stand-in for bytes since events are mostly ASCII JSON
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+}
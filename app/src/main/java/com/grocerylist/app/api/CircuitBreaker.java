@@ -0,0 +1,147 @@
+package com.grocerylist.app.api;
+
+import com.grocerylist.app.utils.AppExecutors;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+
+/**
+ * Stops us hammering a backend that is down.
+ *
+ * CLOSED: calls go through; FAILURE_THRESHOLD consecutive failures open the breaker.
+ * OPEN: calls fail fast with {@link OpenException}; after OPEN_DURATION_MS a health probe runs.
+ * HALF_OPEN: the probe (or the first caller) is let through; success closes, failure re-opens.
+ */
+public class CircuitBreaker {
+    private static final String TAG = "GroceryNet";
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_DURATION_MS = 30_000;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Thrown instead of calling a backend that is known to be down.
+     * An IOException, so callers treat it like any other network failure.
+     */
+    public static class OpenException extends IOException {
+        public OpenException() {
+            super("Backend unavailable - circuit breaker is open");
+        }
+    }
+
+    private final Completable probe;
+    private final BehaviorSubject<State> state = BehaviorSubject.createDefault(State.CLOSED);
+
+    // Guarded by this
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private Disposable scheduledProbe;
+
+    /**
+     * @param probe cheap call used to check whether the backend is back
+     */
+    public CircuitBreaker(Completable probe) {
+        this.probe = probe;
+    }
+
+    public Observable<State> observeState() {
+        return state.distinctUntilChanged();
+    }
+
+    public State getState() {
+        return state.getValue();
+    }
+
+    /**
+     * Returns false if the call should fail fast
+     */
+    public synchronized boolean allowRequest() {
+        switch (state.getValue()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < OPEN_DURATION_MS) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                trialInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                // Only one trial call at a time while we find out if the backend is back
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state.getValue() != State.CLOSED) {
+            android.util.Log.d(TAG, "✅ Backend recovered - closing circuit");
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state.getValue() == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    /**
+     * Gives the trial slot back when a call ends without an outcome, e.g. it was disposed
+     * mid-flight. Otherwise HALF_OPEN would turn every later call away for good.
+     */
+    public synchronized void releaseTrial() {
+        if (state.getValue() == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        if (state.getValue() != State.OPEN) {
+            android.util.Log.w(TAG, "⛔ " + consecutiveFailures + " failures - opening circuit for " + OPEN_DURATION_MS + "ms");
+        }
+        transition(State.OPEN);
+        scheduleProbe();
+    }
+
+    /**
+     * Probes in the background once the open period is over, so recovery doesn't
+     * have to wait for the next user action
+     */
+    private void scheduleProbe() {
+        if (scheduledProbe != null) {
+            scheduledProbe.dispose();
+        }
+        scheduledProbe = Completable.timer(OPEN_DURATION_MS, TimeUnit.MILLISECONDS, AppExecutors.getInstance().networkScheduler())
+                .andThen(Completable.defer(() -> {
+                    if (!allowRequest()) {
+                        // A caller already holds the trial slot
+                        return Completable.complete();
+                    }
+                    return probe.doOnComplete(this::recordSuccess)
+                            .doOnError(throwable -> recordFailure())
+                            .doOnDispose(this::releaseTrial);
+                }))
+                .onErrorComplete()
+                .subscribe();
+    }
+
+    private void transition(State newState) {
+        state.onNext(newState);
+    }
+}
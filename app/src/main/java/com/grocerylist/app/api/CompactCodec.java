@@ -0,0 +1,510 @@
+package com.grocerylist.app.api;
+
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.SyncData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary wire format for sync traffic (application/x-grocery-compact).
+ *
+ * A payload is a 4-byte magic followed by length-prefixed records:
+ *   tag (1 byte) | payload length (varint) | payload
+ * Field names are implied by position, UUID ids take 16 bytes instead of 36 characters,
+ * flags are packed into one byte and numbers are zigzag varints. Unknown tags are
+ * skipped by length, so the server can add record types without breaking old clients.
+ * Fields appended to a record later (hlc, nodeId, fieldClocks) are optional: a shorter record
+ * simply leaves them at their defaults.
+ * A patch record carries a field-level delta; each field is its name plus a typed value,
+ * and patches come after all lists and items.
+ */
+public final class CompactCodec {
+    public static final String MEDIA_TYPE = "application/x-grocery-compact";
+    public static final String MEDIA_SUBTYPE = "x-grocery-compact";
+    // Prefer compact, JSON stays the fallback for older backends
+    public static final String ACCEPT_HEADER = "Accept: " + MEDIA_TYPE + ", application/json;q=0.9";
+
+    public static final int TAG_END = 0;
+    public static final int TAG_LIST = 1;
+    public static final int TAG_ITEM = 2;
+    public static final int TAG_CURSOR = 3;
+    public static final int TAG_PAGE = 4;
+    public static final int TAG_PATCH = 5;
+
+    private static final int MAGIC = 0x474C4331; // "GLC1"
+
+    private static final int FLAG_DELETED = 1;
+    private static final int FLAG_COMPLETED = 1 << 1;
+    private static final int FLAG_ON_OFFER = 1 << 2;
+
+    private static final int ID_STRING = 0;
+    private static final int ID_UUID = 1;
+
+    // Patch value kinds - the values ItemFields can hold
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_FALSE = 1;
+    private static final int VALUE_TRUE = 2;
+    private static final int VALUE_STRING = 3;
+    private static final int VALUE_NUMBER = 4;
+
+    private CompactCodec() {
+        throw new AssertionError("CompactCodec cannot be instantiated");
+    }
+
+    // ===== ENCODING =====
+
+    /**
+     * Streams records into an output, reusing one scratch buffer for the length prefix
+     */
+    public static class Writer {
+        private final OutputStream out;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = out;
+            writeInt(out, MAGIC);
+        }
+
+        public void writeList(GroceryList list) throws IOException {
+            record.reset();
+            record.write(list.getIsDeleted() ? FLAG_DELETED : 0);
+            writeId(record, list.getId());
+            writeString(record, list.getName());
+            writeString(record, list.getUserId());
+            writeString(record, list.getCategory());
+            writeVarLong(record, list.getCreatedAt());
+            writeVarLong(record, list.getUpdatedAt() - list.getCreatedAt());
+            writeVarLong(record, list.getHlc());
+            writeString(record, list.getNodeId());
+            flushRecord(TAG_LIST);
+        }
+
+        public void writeItem(GroceryItem item) throws IOException {
+            int flags = (item.getIsDeleted() ? FLAG_DELETED : 0)
+                    | (item.isCompleted() ? FLAG_COMPLETED : 0)
+                    | (item.isOnOffer() ? FLAG_ON_OFFER : 0);
+
+            record.reset();
+            record.write(flags);
+            writeId(record, item.getId());
+            writeId(record, item.getListId());
+            writeString(record, item.getName());
+            writeString(record, item.getQuantity());
+            writeString(record, item.getUnit());
+            writeString(record, item.getNotes());
+            writeString(record, item.getCategory());
+            writeString(record, item.getPrice());
+            writeVarLong(record, item.getPriority());
+            writeVarLong(record, item.getCreatedAt());
+            writeVarLong(record, item.getUpdatedAt() - item.getCreatedAt());
+            writeVarLong(record, item.getHlc());
+            writeString(record, item.getNodeId());
+            writeString(record, item.getFieldClocks());
+            flushRecord(TAG_ITEM);
+        }
+
+        public void writePatch(ItemPatch patch) throws IOException {
+            record.reset();
+            writeId(record, patch.getId());
+            writeVarLong(record, patch.getHlc());
+            writeString(record, patch.getNodeId());
+            writeVarLong(record, patch.getUpdatedAt());
+            writeVarLong(record, patch.getFields().size());
+            for (Map.Entry<String, Object> field : patch.getFields().entrySet()) {
+                writeString(record, field.getKey());
+                writeValue(record, field.getValue());
+            }
+            flushRecord(TAG_PATCH);
+        }
+
+        public void writeCursor(String cursor) throws IOException {
+            record.reset();
+            writeString(record, cursor);
+            flushRecord(TAG_CURSOR);
+        }
+
+        /**
+         * Paged sync only: token for the next page (null on the last one) and the total row count
+         */
+        public void writePage(String nextPageToken, long totalCount) throws IOException {
+            record.reset();
+            writeString(record, nextPageToken);
+            writeVarLong(record, totalCount);
+            flushRecord(TAG_PAGE);
+        }
+
+        public void writeEnd() throws IOException {
+            out.write(TAG_END);
+            out.flush();
+        }
+
+        private void flushRecord(int tag) throws IOException {
+            out.write(tag);
+            writeVarLong(out, record.size());
+            record.writeTo(out);
+        }
+    }
+
+    public static byte[] encode(SyncData syncData) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new Writer(out);
+        if (syncData.getLists() != null) {
+            for (GroceryList list : syncData.getLists()) {
+                writer.writeList(list);
+            }
+        }
+        if (syncData.getItems() != null) {
+            for (GroceryItem item : syncData.getItems()) {
+                writer.writeItem(item);
+            }
+        }
+        if (syncData.getCursor() != null) {
+            writer.writeCursor(syncData.getCursor());
+        }
+        writer.writeEnd();
+        return out.toByteArray();
+    }
+
+    // ===== DECODING =====
+
+    /**
+     * Pull-style reader: call {@link #next()} for the next tag, then the matching read method.
+     * Only one record is held in memory at a time.
+     */
+    public static class Reader {
+        private final InputStream in;
+        private byte[] payload = new byte[256];
+        private int payloadLength;
+        private int position;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = in;
+            if (readInt(in) != MAGIC) {
+                throw new IOException("Not a compact sync payload");
+            }
+        }
+
+        /**
+         * Advances to the next known record and returns its tag, or TAG_END.
+         * A payload cut off before its end marker throws EOFException rather than
+         * passing for a complete one.
+         */
+        public int next() throws IOException {
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) {
+                    throw new EOFException("Compact sync payload ended without an end marker");
+                }
+                if (tag == TAG_END) {
+                    return TAG_END;
+                }
+
+                payloadLength = (int) CompactCodec.readVarLong(in);
+                if (payload.length < payloadLength) {
+                    payload = new byte[Math.max(payloadLength, payload.length * 2)];
+                }
+                readFully(in, payload, payloadLength);
+                position = 0;
+
+                if (tag == TAG_LIST || tag == TAG_ITEM || tag == TAG_PATCH || tag == TAG_CURSOR || tag == TAG_PAGE) {
+                    return tag;
+                }
+                // Unknown record type from a newer server - already consumed, skip it
+            }
+        }
+
+        public GroceryList readList() throws IOException {
+            int flags = readByte();
+            GroceryList list = new GroceryList();
+            list.setDeleted((flags & FLAG_DELETED) != 0);
+            list.setId(readId());
+            list.setName(readString());
+            list.setUserId(readString());
+            list.setCategory(readString());
+            list.setCreatedAt(readVarLong());
+            list.setUpdatedAt(list.getCreatedAt() + readVarLong());
+            if (hasMore()) {
+                list.setHlc(readVarLong());
+                list.setNodeId(readString());
+            }
+            return list;
+        }
+
+        public GroceryItem readItem() throws IOException {
+            int flags = readByte();
+            GroceryItem item = new GroceryItem();
+            item.setDeleted((flags & FLAG_DELETED) != 0);
+            item.setCompleted((flags & FLAG_COMPLETED) != 0);
+            item.setOnOffer((flags & FLAG_ON_OFFER) != 0);
+            item.setId(readId());
+            item.setListId(readId());
+            item.setName(readString());
+            item.setQuantity(readString());
+            item.setUnit(readString());
+            item.setNotes(readString());
+            item.setCategory(readString());
+            item.setPrice(readString());
+            item.setPriority((int) readVarLong());
+            item.setCreatedAt(readVarLong());
+            item.setUpdatedAt(item.getCreatedAt() + readVarLong());
+            if (hasMore()) {
+                item.setHlc(readVarLong());
+                item.setNodeId(readString());
+            }
+            if (hasMore()) {
+                item.setFieldClocks(readString());
+            }
+            return item;
+        }
+
+        public ItemPatch readPatch() throws IOException {
+            String id = readId();
+            long hlc = readVarLong();
+            String nodeId = readString();
+            long updatedAt = readVarLong();
+            int count = (int) readVarLong();
+            Map<String, Object> fields = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                fields.put(readString(), readValue());
+            }
+            ItemPatch patch = new ItemPatch(fields, hlc, nodeId, updatedAt);
+            patch.setId(id);
+            return patch;
+        }
+
+        public String readCursor() throws IOException {
+            return readString();
+        }
+
+        /**
+         * Reads a TAG_PAGE record into the given result
+         */
+        public void readPage(SyncStreamReader.Result result) throws IOException {
+            result.nextPageToken = readString();
+            result.totalCount = readVarLong();
+        }
+
+        private boolean hasMore() {
+            return position < payloadLength;
+        }
+
+        private int readByte() throws IOException {
+            if (position >= payloadLength) {
+                throw new EOFException("Truncated record");
+            }
+            return payload[position++] & 0xFF;
+        }
+
+        private long readVarLong() throws IOException {
+            long raw = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                raw |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private String readString() throws IOException {
+            int length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (position + length > payloadLength) {
+                throw new EOFException("Truncated string");
+            }
+            String value = new String(payload, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private Object readValue() throws IOException {
+            int kind = readByte();
+            switch (kind) {
+                case VALUE_NULL: return null;
+                case VALUE_FALSE: return false;
+                case VALUE_TRUE: return true;
+                case VALUE_STRING: return readString();
+                case VALUE_NUMBER: return readVarLong();
+                default: throw new IOException("Unknown patch value kind " + kind);
+            }
+        }
+
+        private String readId() throws IOException {
+            if (readByte() == ID_UUID) {
+                long most = 0;
+                long least = 0;
+                for (int i = 0; i < 8; i++) {
+                    most = (most << 8) | readByte();
+                }
+                for (int i = 0; i < 8; i++) {
+                    least = (least << 8) | readByte();
+                }
+                return new UUID(most, least).toString();
+            }
+            return readString();
+        }
+    }
+
+    public static SyncData decode(InputStream in) throws IOException {
+        Reader reader = new Reader(in);
+        List<GroceryList> lists = new ArrayList<>();
+        List<GroceryItem> items = new ArrayList<>();
+        String cursor = null;
+
+        int tag;
+        while ((tag = reader.next()) != TAG_END) {
+            if (tag == TAG_LIST) {
+                lists.add(reader.readList());
+            } else if (tag == TAG_ITEM) {
+                items.add(reader.readItem());
+            } else if (tag == TAG_CURSOR) {
+                cursor = reader.readCursor();
+            }
+        }
+
+        SyncData syncData = new SyncData(lists, items);
+        syncData.setCursor(cursor);
+        return syncData;
+    }
+
+    // ===== PRIMITIVES =====
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static int readInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Zigzag varint, so small negative values stay small too
+     */
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        long raw = (value << 1) ^ (value >> 63);
+        while ((raw & ~0x7FL) != 0) {
+            out.write((int) ((raw & 0x7F) | 0x80));
+            raw >>>= 7;
+        }
+        out.write((int) raw);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long raw = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            raw |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Truncated record");
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Null is encoded as length 0, everything else as (UTF-8 length + 1)
+     */
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    /**
+     * Numbers are whole (priority), so a Gson-decoded 2.0 goes out as 2
+     */
+    private static void writeValue(OutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.write(VALUE_NULL);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+        } else if (value instanceof String) {
+            out.write(VALUE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Number) {
+            out.write(VALUE_NUMBER);
+            writeVarLong(out, ((Number) value).longValue());
+        } else {
+            throw new IOException("Unsupported patch value " + value.getClass().getSimpleName());
+        }
+    }
+
+    private static void writeId(OutputStream out, String id) throws IOException {
+        UUID uuid = parseCanonicalUuid(id);
+        if (uuid == null) {
+            out.write(ID_STRING);
+            writeString(out, id);
+            return;
+        }
+
+        out.write(ID_UUID);
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (most >>> shift));
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (least >>> shift));
+        }
+    }
+
+    /**
+     * Only ids that round-trip exactly (lower-case, canonical form) are packed into 16 bytes
+     */
+    private static UUID parseCanonicalUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
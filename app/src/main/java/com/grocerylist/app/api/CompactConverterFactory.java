@@ -0,0 +1,68 @@
+package com.grocerylist.app.api;
+
+import androidx.annotation.NonNull;
+
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.SyncData;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Decodes application/x-grocery-compact responses and hands anything else
+ * to the next converter (Gson), so JSON keeps working as the fallback.
+ * Must be registered before GsonConverterFactory.
+ */
+public class CompactConverterFactory extends Converter.Factory {
+
+    public static CompactConverterFactory create() {
+        return new CompactConverterFactory();
+    }
+
+    private CompactConverterFactory() {
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type type,
+                                                            @NonNull Annotation[] annotations,
+                                                            @NonNull Retrofit retrofit) {
+        if (type != SyncData.class && type != GroceryList.class && type != GroceryItem.class) {
+            return null;
+        }
+
+        Converter<ResponseBody, Object> jsonConverter = retrofit.nextResponseBodyConverter(this, type, annotations);
+        return body -> {
+            if (!isCompact(body.contentType())) {
+                return jsonConverter.convert(body);
+            }
+            try {
+                return decode(type, body);
+            } finally {
+                body.close();
+            }
+        };
+    }
+
+    private Object decode(Type type, ResponseBody body) throws IOException {
+        SyncData syncData = CompactCodec.decode(body.byteStream());
+        if (type == SyncData.class) {
+            return syncData;
+        }
+        // Single-entity responses carry exactly one record
+        if (type == GroceryList.class) {
+            return syncData.getLists().isEmpty() ? null : syncData.getLists().get(0);
+        }
+        return syncData.getItems().isEmpty() ? null : syncData.getItems().get(0);
+    }
+
+    static boolean isCompact(MediaType contentType) {
+        return contentType != null && CompactCodec.MEDIA_SUBTYPE.equals(contentType.subtype());
+    }
+}
@@ -0,0 +1,64 @@
+package com.grocerylist.app.api;
+
+import android.content.Context;
+
+import com.grocerylist.app.utils.AppExecutors;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.rxjava3.core.Completable;
+import okhttp3.HttpUrl;
+
+/**
+ * Warms up the path to the Cloud Run backend while the first screen renders locally:
+ * resolves DNS, then sends a cheap health ping that opens the TLS connection and wakes
+ * the instance. The connection stays in OkHttp's pool, so the first real sync reuses it.
+ * Each phase is timed by NetworkTimingListener.
+ */
+public class ConnectionPrewarmer {
+    private static final String TAG = "GroceryNet";
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+
+    private ConnectionPrewarmer() {
+        throw new AssertionError("ConnectionPrewarmer cannot be instantiated");
+    }
+
+    /**
+     * Starts prewarming in the background. Only the first call per process does anything.
+     */
+    public static void prewarm(Context context) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        long startTime = System.currentTimeMillis();
+
+        // Building the HTTP stack touches disk, so even that stays off the main thread
+        Completable.defer(() -> {
+                    ApiClient apiClient = ApiClient.getInstance(appContext);
+                    return resolveDns(apiClient)
+                            .onErrorComplete()
+                            // DNS goes first so the ping's lookup hits the resolver cache;
+                            // the ping then does connect + TLS + instance wake-up
+                            .andThen(apiClient.getApiService().ping());
+                })
+                .subscribeOn(AppExecutors.getInstance().networkScheduler())
+                .subscribe(
+                        () -> android.util.Log.d(TAG, "🔥 Backend warm after " + (System.currentTimeMillis() - startTime) + "ms"),
+                        throwable -> android.util.Log.w(TAG, "⚠️ Prewarm failed: " + throwable.getMessage())
+                );
+    }
+
+    private static Completable resolveDns(ApiClient apiClient) {
+        return Completable.fromAction(() -> {
+            HttpUrl baseUrl = apiClient.getBaseUrl();
+            long dnsStart = System.currentTimeMillis();
+            List<InetAddress> addresses = apiClient.getOkHttpClient().dns().lookup(baseUrl.host());
+            android.util.Log.d(TAG, "🌐 Resolved " + baseUrl.host() + " to " + addresses.size() +
+                    " addresses in " + (System.currentTimeMillis() - dnsStart) + "ms");
+        });
+    }
+}
@@ -1,35 +1,117 @@
 package com.grocerylist.app.api;
 
+import com.grocerylist.app.models.BatchResult;
+import com.grocerylist.app.models.DigestRequest;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
-import com.grocerylist.app.models.SyncData;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.Mutation;
+import java.util.List;
+import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Single;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.PATCH;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface GroceryApiService {
+    // Sync responses are merged once and must never be replayed from the HTTP cache,
+    // which would also add its own If-None-Match to requests we send without one
+    String NO_STORE = "Cache-Control: no-store";
 
+    /**
+     * Cheap liveness check, used to wake the Cloud Run instance and warm the connection
+     */
+    @GET("api/health")
+    Completable ping();
+
+    // Sync calls are raw and unbuffered - read with SyncStreamReader
+
+    // A null etag omits the If-None-Match header; a matching one gets 304 Not Modified
+
+    @Streaming
+    @Headers({CompactCodec.ACCEPT_HEADER, NO_STORE})
     @GET("api/sync")
-    Single<SyncData> getAllData(@Query("userId") String userId);
+    Single<Response<ResponseBody>> getAllDataStream(@Query("userId") String userId,
+                                                    @Header("If-None-Match") String etag);
+
+    /**
+     * Incremental sync: returns only rows (including tombstones) changed after the given cursor.
+     * Responds with 410 Gone when the cursor is unknown or expired.
+     */
+    @Streaming
+    @Headers({CompactCodec.ACCEPT_HEADER, NO_STORE})
+    @GET("api/sync/changes")
+    Single<Response<ResponseBody>> getChangesStream(@Query("userId") String userId,
+                                                    @Query("since") String cursor,
+                                                    @Header("If-None-Match") String etag);
+
+    /**
+     * One page of a full sync. Pass a null token for the first page, then the returned
+     * nextPageToken until it comes back null. Lists are paged before items, and the last
+     * page carries the delta cursor as of the first page.
+     */
+    @Streaming
+    @Headers({CompactCodec.ACCEPT_HEADER, NO_STORE})
+    @GET("api/sync/pages")
+    Single<Response<ResponseBody>> getSyncPage(@Query("userId") String userId,
+                                               @Query("pageToken") String pageToken,
+                                               @Query("pageSize") int pageSize);
+
+    /**
+     * One list and all of its items (tombstones included), in the same shape as api/sync
+     */
+    @Streaming
+    @Headers({CompactCodec.ACCEPT_HEADER, NO_STORE})
+    @GET("api/lists/{listId}/sync")
+    Single<Response<ResponseBody>> getListSync(@Path("listId") String listId,
+                                               @Query("userId") String userId);
+
+    /**
+     * Digest handshake - see DigestRequest. Sends back only the lists that differ, plus a
+     * fresh delta cursor, so a no-change reconcile costs little more than the digests.
+     */
+    @Streaming
+    @Headers({CompactCodec.ACCEPT_HEADER, "Content-Encoding: gzip"})
+    @POST("api/sync/digests")
+    Single<Response<ResponseBody>> syncByDigest(@Body DigestRequest request);
 
     @POST("api/lists")
     Single<GroceryList> createList(@Body GroceryList list);
 
     @DELETE("api/lists/{id}")
-    Single<Void> deleteList(@Path("id") String id);
+    Completable deleteList(@Path("id") String id);
 
     @POST("api/items")
     Single<GroceryItem> createItem(@Body GroceryItem item);
 
+    /**
+     * Sends only the changed fields; the server merges them field by field
+     */
+    @PATCH("api/items/{id}")
+    Completable patchItem(@Path("id") String id, @Body ItemPatch patch);
+
     @DELETE("api/items/{id}")
-    Single<Void> deleteItem(@Path("id") String id);
+    Completable deleteItem(@Path("id") String id);
 
     @DELETE("api/lists/{listId}/completed-items")
-    Single<Void> clearCompletedItems(@Path("listId") String listId);
+    Completable clearCompletedItems(@Path("listId") String listId);
+
+    /**
+     * Applies several mutations in one round trip, in request order.
+     * The body is gzipped by GzipRequestInterceptor.
+     */
+    @Headers("Content-Encoding: gzip")
+    @POST("api/batch")
+    Single<BatchResult> applyMutations(@Body List<Mutation> mutations);
 
     @DELETE("admin/clear-all")
     Single<String> clearAllData(@Query("userId") String userId, @Query("confirmToken") String confirmToken);
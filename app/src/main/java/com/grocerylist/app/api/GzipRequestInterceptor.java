@@ -0,0 +1,86 @@
+package com.grocerylist.app.api;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Gzips request bodies of calls that opt in with a "Content-Encoding: gzip" header
+ * (see GroceryApiService). Response bodies are already gunzipped transparently by OkHttp.
+ *
+ * A backend that can't read gzipped bodies answers 400 or 415. The request is then sent
+ * once more uncompressed; if that one is accepted, bodies go out uncompressed from then on.
+ */
+public class GzipRequestInterceptor implements Interceptor {
+    private static final String TAG = "GroceryNet";
+
+    private volatile boolean gzipUnsupported;
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestBody body = request.body();
+        if (body == null || !"gzip".equalsIgnoreCase(request.header("Content-Encoding"))) {
+            return chain.proceed(request);
+        }
+
+        Request plain = request.newBuilder()
+                .removeHeader("Content-Encoding")
+                .build();
+        if (gzipUnsupported) {
+            return chain.proceed(plain);
+        }
+
+        Request compressed = request.newBuilder()
+                .method(request.method(), gzip(body))
+                .build();
+        Response response = chain.proceed(compressed);
+        if ((response.code() != 400 && response.code() != 415) || body.isOneShot()) {
+            return response;
+        }
+
+        response.close();
+        Response retried = chain.proceed(plain);
+        if (retried.code() != 400 && retried.code() != 415) {
+            // Only the compression was refused
+            android.util.Log.w(TAG, "⚠️ Backend refused a gzipped body - sending request bodies uncompressed");
+            gzipUnsupported = true;
+        }
+        return retried;
+    }
+
+    public boolean isGzipUnsupported() {
+        return gzipUnsupported;
+    }
+
+    private RequestBody gzip(RequestBody body) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() {
+                return -1; // Unknown until compressed
+            }
+
+            @Override
+            public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                try (BufferedSink gzipSink = Okio.buffer(new GzipSink(sink))) {
+                    body.writeTo(gzipSink);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package com.grocerylist.app.api;
+
+import com.grocerylist.app.utils.AppExecutors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleTransformer;
+import retrofit2.Response;
+
+/**
+ * Keeps a sliding window of observed latencies for one class of calls and derives
+ * an adaptive timeout and a hedging delay from its percentiles.
+ *
+ * Samples are whatever the wrapped Single waits for: the whole body for parsed responses,
+ * only the headers (time to first byte) for @Streaming ones. Keep one tracker per kind.
+ *
+ * Until MIN_SAMPLES calls have been seen, the fixed 60s timeout applies and nothing is hedged -
+ * the first call of the day is often a Cloud Run cold start and shouldn't be cut short.
+ */
+public class LatencyTracker {
+    private static final String TAG = "GroceryNet";
+    private static final int WINDOW_SIZE = 100;
+    private static final int MIN_SAMPLES = 10;
+
+    // Timeout = p99 * TIMEOUT_MULTIPLIER, clamped to [MIN_TIMEOUT_MS, MAX_TIMEOUT_MS]
+    private static final int TIMEOUT_MULTIPLIER = 3;
+    private static final long MIN_TIMEOUT_MS = 10_000;
+    private static final long MAX_TIMEOUT_MS = 60_000; // Same as the OkHttp timeouts
+    private static final long MIN_HEDGE_DELAY_MS = 100;
+
+    private final String name;
+    private final long[] samples = new long[WINDOW_SIZE];
+    private int sampleCount;
+    private int nextSlot;
+
+    public LatencyTracker(String name) {
+        this.name = name;
+    }
+
+    // ===== SAMPLES =====
+
+    public synchronized void record(long latencyMs) {
+        samples[nextSlot] = latencyMs;
+        nextSlot = (nextSlot + 1) % WINDOW_SIZE;
+        sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return the latency in ms, or -1 if nothing has been recorded yet
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (sampleCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+        return sorted[Math.max(0, Math.min(index, sampleCount - 1))];
+    }
+
+    public synchronized int getSampleCount() {
+        return sampleCount;
+    }
+
+    private synchronized boolean hasEnoughSamples() {
+        return sampleCount >= MIN_SAMPLES;
+    }
+
+    // ===== POLICY =====
+
+    public long getTimeoutMs() {
+        if (!hasEnoughSamples()) {
+            return MAX_TIMEOUT_MS;
+        }
+        long timeout = getPercentile(99) * TIMEOUT_MULTIPLIER;
+        return Math.max(MIN_TIMEOUT_MS, Math.min(timeout, MAX_TIMEOUT_MS));
+    }
+
+    /**
+     * How long to wait before hedging, or -1 if there isn't enough data to hedge yet
+     */
+    public long getHedgeDelayMs() {
+        if (!hasEnoughSamples()) {
+            return -1;
+        }
+        return Math.max(MIN_HEDGE_DELAY_MS, getPercentile(95));
+    }
+
+    // ===== TRANSFORMERS =====
+
+    /**
+     * Times each attempt and fails it with a SocketTimeoutException once it runs past
+     * the current adaptive timeout. Being an IOException, the timeout is retried and
+     * counted by the circuit breaker like any other network failure.
+     */
+    public <T> SingleTransformer<T, T> adaptiveTimeout() {
+        return upstream -> Single.defer(() -> {
+            long timeoutMs = getTimeoutMs();
+            long startNanos = System.nanoTime();
+            return upstream
+                    .timeout(timeoutMs, TimeUnit.MILLISECONDS, AppExecutors.getInstance().networkScheduler(),
+                            Single.defer(() -> {
+                                // Censored sample - we only know it took at least this long
+                                record(timeoutMs);
+                                return Single.<T>error(new SocketTimeoutException(
+                                        name + " timed out after " + timeoutMs + "ms"));
+                            }))
+                    .doOnSuccess(value -> record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        });
+    }
+
+    /**
+     * Subscribes to the request, and once more if it hasn't answered by the observed p95.
+     * Whichever answers first wins and the other one is cancelled. If both have already
+     * answered, the loser's response is closed so its connection isn't leaked.
+     * Each attempt runs on its own network thread: Retrofit's Singles block the subscribing
+     * thread, so the primary would otherwise hold up the hedge until it had answered.
+     * Only for idempotent requests.
+     */
+    public <T> Single<T> hedged(Single<T> request) {
+        return Single.defer(() -> {
+            long hedgeDelayMs = getHedgeDelayMs();
+            if (hedgeDelayMs < 0) {
+                return request;
+            }
+            Scheduler network = AppExecutors.getInstance().networkScheduler();
+            AtomicBoolean answered = new AtomicBoolean();
+            Single<T> primary = request
+                    .subscribeOn(network)
+                    .flatMap(value -> firstAnswer(value, answered));
+            Single<T> hedge = request
+                    .subscribeOn(network)
+                    .doOnSubscribe(disposable -> android.util.Log.d(TAG, "⏱️ " + name + " slower than p95 (" + hedgeDelayMs + "ms) - hedging"))
+                    .delaySubscription(hedgeDelayMs, TimeUnit.MILLISECONDS, network)
+                    .flatMap(value -> firstAnswer(value, answered));
+            return Single.ambArray(primary, hedge);
+        });
+    }
+
+    /**
+     * Passes on the first answer only. A later one is closed and never emitted,
+     * so amb can't pick it and nobody is left holding its body.
+     */
+    private static <T> Single<T> firstAnswer(T value, AtomicBoolean answered) {
+        if (answered.compareAndSet(false, true)) {
+            return Single.just(value);
+        }
+        closeQuietly(value);
+        return Single.never();
+    }
+
+    private static void closeQuietly(Object value) {
+        if (!(value instanceof Response)) {
+            return;
+        }
+        Response<?> response = (Response<?>) value;
+        try {
+            if (response.body() instanceof Closeable) {
+                ((Closeable) response.body()).close();
+            }
+            if (response.errorBody() != null) {
+                response.errorBody().close();
+            }
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + ": p50=" + getPercentile(50) + "ms p95=" + getPercentile(95) + "ms p99=" +
+                getPercentile(99) + "ms timeout=" + getTimeoutMs() + "ms (" + getSampleCount() + " samples)";
+    }
+}
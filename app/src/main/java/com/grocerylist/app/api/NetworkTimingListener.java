@@ -0,0 +1,145 @@
+package com.grocerylist.app.api;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * Times the phases of a single call (DNS, connect, TLS, time to first byte)
+ * so we can see where the Cloud Run cold-start cost actually goes.
+ * A phase that didn't happen (pooled connection) is reported as -1.
+ */
+public class NetworkTimingListener extends EventListener {
+    private static final String TAG = "GroceryNet";
+
+    private static volatile Timings lastTimings;
+
+    private final String label;
+    private final long callStartNanos = System.nanoTime();
+    private long dnsStartNanos;
+    private long connectStartNanos;
+    private long secureConnectStartNanos;
+    private long requestStartNanos;
+
+    private long dnsMs = -1;
+    private long connectMs = -1;
+    private long tlsMs = -1;
+    private long ttfbMs = -1;
+
+    public static final EventListener.Factory FACTORY = call -> new NetworkTimingListener(call);
+
+    /**
+     * Phase durations of one finished call, in milliseconds
+     */
+    public static class Timings {
+        public final String label;
+        public final long dnsMs;
+        public final long connectMs;
+        public final long tlsMs;
+        public final long ttfbMs;
+        public final long totalMs;
+        public final boolean failed;
+
+        Timings(String label, long dnsMs, long connectMs, long tlsMs, long ttfbMs, long totalMs, boolean failed) {
+            this.label = label;
+            this.dnsMs = dnsMs;
+            this.connectMs = connectMs;
+            this.tlsMs = tlsMs;
+            this.ttfbMs = ttfbMs;
+            this.totalMs = totalMs;
+            this.failed = failed;
+        }
+
+        public boolean reusedConnection() {
+            return connectMs < 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return label + ": dns=" + dnsMs + "ms connect=" + connectMs + "ms tls=" + tlsMs +
+                    "ms ttfb=" + ttfbMs + "ms total=" + totalMs + "ms" + (failed ? " (failed)" : "");
+        }
+    }
+
+    private NetworkTimingListener(Call call) {
+        this.label = call.request().method() + " " + call.request().url().encodedPath();
+    }
+
+    /**
+     * Timings of the most recently finished call, or null if none finished yet
+     */
+    public static Timings getLastTimings() {
+        return lastTimings;
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        dnsMs = elapsedMs(dnsStartNanos);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        tlsMs = elapsedMs(secureConnectStartNanos);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, Protocol protocol) {
+        connectMs = elapsedMs(connectStartNanos);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        ttfbMs = elapsedMs(requestStartNanos);
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        finish(false);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        finish(true);
+    }
+
+    private void finish(boolean failed) {
+        Timings timings = new Timings(label, dnsMs, connectMs, tlsMs, ttfbMs, elapsedMs(callStartNanos), failed);
+        lastTimings = timings;
+        android.util.Log.d(TAG, "⏱️ " + timings);
+    }
+
+    private long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,169 @@
+package com.grocerylist.app.api;
+
+import com.grocerylist.app.utils.AppExecutors;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.core.CompletableTransformer;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleTransformer;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import org.reactivestreams.Publisher;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Retry and circuit-breaker policy for backend calls.
+ *
+ * Idempotent calls are retried on transient failures (I/O errors, 408, 429, 5xx) with
+ * capped exponential backoff and full jitter, so many clients recovering at once
+ * don't retry in lockstep. Every call, idempotent or not, goes through the circuit breaker.
+ */
+public class Resilience {
+    private static final String TAG = "GroceryNet";
+    private static final int MAX_RETRIES = 3;
+    private static final long BASE_DELAY_MS = 500;
+    private static final long MAX_DELAY_MS = 8_000;
+
+    private final CircuitBreaker circuitBreaker;
+    private final Random random = new Random();
+    private final AtomicInteger totalRetries = new AtomicInteger();
+    private final BehaviorSubject<Integer> retryCount = BehaviorSubject.createDefault(0);
+
+    public Resilience(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    // ===== TRANSFORMERS =====
+
+    /**
+     * For calls that are safe to repeat (GET, DELETE, id-based upserts)
+     */
+    public <T> SingleTransformer<T, T> idempotent() {
+        return upstream -> guarded(upstream).retryWhen(this::backoff);
+    }
+
+    /**
+     * For calls that must not be repeated blindly - breaker only
+     */
+    public <T> SingleTransformer<T, T> nonIdempotent() {
+        return this::guarded;
+    }
+
+    public CompletableTransformer idempotentCompletable() {
+        return upstream -> guarded(upstream.toSingleDefault(Boolean.TRUE))
+                .retryWhen(this::backoff)
+                .ignoreElement();
+    }
+
+    /**
+     * Fails fast while the breaker is open and feeds the outcome back into it.
+     * A call disposed before it finishes gives back the breaker's trial slot.
+     * Calls returning a raw {@link Response} don't throw on HTTP errors, so 5xx
+     * responses are turned into an {@link HttpException} here.
+     */
+    private <T> Single<T> guarded(Single<T> upstream) {
+        return Single.defer(() -> {
+            if (!circuitBreaker.allowRequest()) {
+                return Single.<T>error(new CircuitBreaker.OpenException());
+            }
+            return upstream
+                    .map(value -> {
+                        if (value instanceof Response && ((Response<?>) value).code() >= 500) {
+                            Response<?> response = (Response<?>) value;
+                            if (response.errorBody() != null) {
+                                response.errorBody().close();
+                            }
+                            throw new HttpException(response);
+                        }
+                        return value;
+                    })
+                    .doOnSuccess(value -> circuitBreaker.recordSuccess())
+                    .doOnError(throwable -> {
+                        if (isBackendFailure(throwable)) {
+                            circuitBreaker.recordFailure();
+                        } else if (!(throwable instanceof CircuitBreaker.OpenException)) {
+                            // A 4xx still proves the backend is up
+                            circuitBreaker.recordSuccess();
+                        }
+                    })
+                    // Disposed before an outcome: don't leave the half-open trial slot taken
+                    .doOnDispose(circuitBreaker::releaseTrial);
+        });
+    }
+
+    private Publisher<Long> backoff(Flowable<Throwable> errors) {
+        return errors.zipWith(Flowable.range(1, MAX_RETRIES + 1), (error, attempt) -> {
+            if (attempt > MAX_RETRIES || !isRetryable(error)) {
+                throw asException(error);
+            }
+            return attempt;
+        }).flatMap(attempt -> {
+            long delay = nextDelayMs(attempt);
+            retryCount.onNext(totalRetries.incrementAndGet());
+            android.util.Log.d(TAG, "🔁 Retry " + attempt + "/" + MAX_RETRIES + " in " + delay + "ms");
+            return Flowable.timer(delay, TimeUnit.MILLISECONDS, AppExecutors.getInstance().networkScheduler());
+        });
+    }
+
+    /**
+     * Full jitter: uniform in [0, min(cap, base * 2^(attempt-1))]
+     */
+    long nextDelayMs(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt - 1, 20));
+        synchronized (random) {
+            return (long) (random.nextDouble() * (ceiling + 1));
+        }
+    }
+
+    // ===== CLASSIFICATION =====
+
+    private boolean isRetryable(Throwable throwable) {
+        // An open breaker means we already decided to stop - retrying would defeat it
+        return !(throwable instanceof CircuitBreaker.OpenException) && isBackendFailure(throwable);
+    }
+
+    private boolean isBackendFailure(Throwable throwable) {
+        if (throwable instanceof CircuitBreaker.OpenException) {
+            return false;
+        }
+        if (throwable instanceof IOException) {
+            return true;
+        }
+        if (throwable instanceof HttpException) {
+            int code = ((HttpException) throwable).code();
+            return code == 408 || code == 429 || code >= 500;
+        }
+        return false;
+    }
+
+    private static Exception asException(Throwable throwable) {
+        return throwable instanceof Exception ? (Exception) throwable : new RuntimeException(throwable);
+    }
+
+    // ===== OBSERVABILITY =====
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Observable<CircuitBreaker.State> observeBreakerState() {
+        return circuitBreaker.observeState();
+    }
+
+    /**
+     * Total retries made since process start
+     */
+    public Observable<Integer> observeRetryCount() {
+        return retryCount;
+    }
+
+    public int getRetryCount() {
+        return totalRetries.get();
+    }
+}
@@ -0,0 +1,308 @@
+package com.grocerylist.app.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemPatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Streams a sync payload ({"lists": [...], "items": [...], "cursor": "..."}, plus
+ * "nextPageToken" and "totalCount" for a paged sync and "patches" for field-level deltas)
+ * straight off the response body instead of materialising a SyncData object.
+ * Both JSON and the CompactCodec binary format are understood, picked by Content-Type.
+ *
+ * Entities are decoded one at a time and handed over in fixed-size chunks,
+ * so peak memory is bounded by the chunk size rather than the payload size.
+ * The backend writes "lists" before "items" and "patches" last, so chunks can be merged as
+ * they arrive without breaking the items' foreign keys. A payload in any other order still
+ * merges correctly: items seen before the lists (and patches before the items) are held
+ * back until those have been handed over, which costs memory for the held part only.
+ * The compact format always writes lists first and patches last, so its records are
+ * handed over in the order they arrive.
+ */
+public class SyncStreamReader {
+    private static final String TAG = "GrocerySync";
+    public static final int DEFAULT_CHUNK_SIZE = 250;
+
+    private final TypeAdapter<GroceryList> listAdapter;
+    private final TypeAdapter<GroceryItem> itemAdapter;
+    private final TypeAdapter<ItemPatch> patchAdapter;
+    private final int chunkSize;
+
+    /**
+     * Receives decoded entities chunk by chunk. Called on the reading thread.
+     */
+    public interface ChunkHandler {
+        void onLists(List<GroceryList> lists);
+        void onItems(List<GroceryItem> items);
+
+        default void onPatches(List<ItemPatch> patches) {
+        }
+    }
+
+    /**
+     * Summary of a streamed payload
+     */
+    public static class Result {
+        private int listCount;
+        private int itemCount;
+        private String cursor;
+        String nextPageToken;
+        long totalCount = -1;
+
+        public int getListCount() { return listCount; }
+        public int getItemCount() { return itemCount; }
+        public String getCursor() { return cursor; }
+
+        /**
+         * Token of the next page, or null when this was the last (or only) page
+         */
+        public String getNextPageToken() { return nextPageToken; }
+
+        /**
+         * Rows in the whole paged sync, or -1 if the server didn't say
+         */
+        public long getTotalCount() { return totalCount; }
+    }
+
+    public SyncStreamReader(Gson gson, int chunkSize) {
+        this.listAdapter = gson.getAdapter(GroceryList.class);
+        this.itemAdapter = gson.getAdapter(GroceryItem.class);
+        this.patchAdapter = gson.getAdapter(ItemPatch.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the whole body, handing chunks to the handler as they fill up.
+     * Always closes the body.
+     */
+    public Result read(ResponseBody body, ChunkHandler handler) throws IOException {
+        if (CompactConverterFactory.isCompact(body.contentType())) {
+            try {
+                return readCompact(body, handler);
+            } finally {
+                body.close();
+            }
+        }
+        return readJson(body, handler);
+    }
+
+    private Result readJson(ResponseBody body, ChunkHandler handler) throws IOException {
+        Result result = new Result();
+        boolean listsRead = false;
+        boolean itemsRead = false;
+        // Entities that arrived ahead of what they depend on
+        List<GroceryItem> heldItems = null;
+        List<ItemPatch> heldPatches = null;
+
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+
+                switch (name) {
+                    case "lists":
+                        result.listCount += readLists(reader, handler);
+                        listsRead = true;
+                        break;
+                    case "items":
+                        if (listsRead) {
+                            result.itemCount += readItems(reader, handler);
+                        } else {
+                            heldItems = readAll(reader, itemAdapter);
+                            result.itemCount += heldItems.size();
+                        }
+                        itemsRead = true;
+                        break;
+                    case "patches":
+                        if (itemsRead && heldItems == null) {
+                            readPatches(reader, handler);
+                        } else {
+                            heldPatches = readAll(reader, patchAdapter);
+                        }
+                        break;
+                    case "cursor":
+                        result.cursor = reader.nextString();
+                        break;
+                    case "nextPageToken":
+                        result.nextPageToken = reader.nextString();
+                        break;
+                    case "totalCount":
+                        result.totalCount = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+
+                if (listsRead && heldItems != null) {
+                    android.util.Log.w(TAG, "⚠️ Sync payload had items before lists - merged them late");
+                    handInChunks(heldItems, handler::onItems);
+                    heldItems = null;
+                }
+            }
+            reader.endObject();
+        }
+
+        // Whatever is still held has nothing left to wait for
+        if (heldItems != null) {
+            handInChunks(heldItems, handler::onItems);
+        }
+        if (heldPatches != null) {
+            handInChunks(heldPatches, handler::onPatches);
+        }
+        return result;
+    }
+
+    private Result readCompact(ResponseBody body, ChunkHandler handler) throws IOException {
+        Result result = new Result();
+        CompactCodec.Reader reader = new CompactCodec.Reader(body.byteStream());
+        List<GroceryList> lists = new ArrayList<>(chunkSize);
+        List<GroceryItem> items = new ArrayList<>(chunkSize);
+        List<ItemPatch> patches = new ArrayList<>(chunkSize);
+
+        int tag;
+        while ((tag = reader.next()) != CompactCodec.TAG_END) {
+            if (tag == CompactCodec.TAG_LIST) {
+                lists.add(reader.readList());
+                result.listCount++;
+                if (lists.size() >= chunkSize) {
+                    handler.onLists(lists);
+                    lists = new ArrayList<>(chunkSize);
+                }
+            } else if (tag == CompactCodec.TAG_ITEM) {
+                if (!lists.isEmpty()) {
+                    // Lists must be merged before the items that reference them
+                    handler.onLists(lists);
+                    lists = new ArrayList<>(chunkSize);
+                }
+                items.add(reader.readItem());
+                result.itemCount++;
+                if (items.size() >= chunkSize) {
+                    handler.onItems(items);
+                    items = new ArrayList<>(chunkSize);
+                }
+            } else if (tag == CompactCodec.TAG_PATCH) {
+                if (!lists.isEmpty()) {
+                    handler.onLists(lists);
+                    lists = new ArrayList<>(chunkSize);
+                }
+                if (!items.isEmpty()) {
+                    // Patches apply to items that must already be stored
+                    handler.onItems(items);
+                    items = new ArrayList<>(chunkSize);
+                }
+                patches.add(reader.readPatch());
+                if (patches.size() >= chunkSize) {
+                    handler.onPatches(patches);
+                    patches = new ArrayList<>(chunkSize);
+                }
+            } else if (tag == CompactCodec.TAG_CURSOR) {
+                result.cursor = reader.readCursor();
+            } else {
+                reader.readPage(result);
+            }
+        }
+
+        if (!lists.isEmpty()) {
+            handler.onLists(lists);
+        }
+        if (!items.isEmpty()) {
+            handler.onItems(items);
+        }
+        if (!patches.isEmpty()) {
+            handler.onPatches(patches);
+        }
+        return result;
+    }
+
+    private int readLists(JsonReader reader, ChunkHandler handler) throws IOException {
+        int count = 0;
+        List<GroceryList> chunk = new ArrayList<>(chunkSize);
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            chunk.add(listAdapter.read(reader));
+            count++;
+            if (chunk.size() >= chunkSize) {
+                handler.onLists(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        reader.endArray();
+
+        if (!chunk.isEmpty()) {
+            handler.onLists(chunk);
+        }
+        return count;
+    }
+
+    private int readItems(JsonReader reader, ChunkHandler handler) throws IOException {
+        int count = 0;
+        List<GroceryItem> chunk = new ArrayList<>(chunkSize);
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            chunk.add(itemAdapter.read(reader));
+            count++;
+            if (chunk.size() >= chunkSize) {
+                handler.onItems(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        reader.endArray();
+
+        if (!chunk.isEmpty()) {
+            handler.onItems(chunk);
+        }
+        return count;
+    }
+
+    private <T> List<T> readAll(JsonReader reader, TypeAdapter<T> adapter) throws IOException {
+        List<T> all = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            all.add(adapter.read(reader));
+        }
+        reader.endArray();
+        return all;
+    }
+
+    private <T> void handInChunks(List<T> all, Consumer<List<T>> consumer) {
+        for (int start = 0; start < all.size(); start += chunkSize) {
+            consumer.accept(new ArrayList<>(all.subList(start, Math.min(start + chunkSize, all.size()))));
+        }
+    }
+
+    private void readPatches(JsonReader reader, ChunkHandler handler) throws IOException {
+        List<ItemPatch> chunk = new ArrayList<>(chunkSize);
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            chunk.add(patchAdapter.read(reader));
+            if (chunk.size() >= chunkSize) {
+                handler.onPatches(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        reader.endArray();
+
+        if (!chunk.isEmpty()) {
+            handler.onPatches(chunk);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.grocerylist.app.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+import com.grocerylist.app.models.ChangeLogEntry;
+import java.util.List;
+
+/**
+ * Read side of the trigger-maintained change feed. A consumer remembers the last seq it
+ * handled and asks only for what came after it, instead of rescanning the tables.
+ */
+@Dao
+public interface ChangeLogDao {
+    @Query("SELECT * FROM change_log WHERE seq > :afterSeq ORDER BY seq ASC LIMIT :limit")
+    List<ChangeLogEntry> getChangesSince(long afterSeq, int limit);
+
+    /**
+     * Lists touched after the given seq, directly or through one of their items
+     */
+    @Query("SELECT DISTINCT listId FROM change_log WHERE seq > :afterSeq AND listId IS NOT NULL")
+    List<String> getChangedListIdsSince(long afterSeq);
+
+    /**
+     * 0 while the feed is empty
+     */
+    @Query("SELECT IFNULL(MAX(seq), 0) FROM change_log")
+    long getLatestSeq();
+
+    /**
+     * Emits the newest seq after every committed change to either table
+     */
+    @Query("SELECT IFNULL(MAX(seq), 0) FROM change_log")
+    LiveData<Long> observeLatestSeq();
+
+    /**
+     * Oldest seq still held, or 0 if empty. A consumer whose last seq + 1 is below this
+     * has missed pruned entries and must rescan once.
+     */
+    @Query("SELECT IFNULL(MIN(seq), 0) FROM change_log")
+    long getOldestSeq();
+
+    @Query("DELETE FROM change_log WHERE changedAt < :cutoff")
+    int pruneOlderThan(long cutoff);
+
+    @Query("DELETE FROM change_log")
+    void deleteAll();
+}
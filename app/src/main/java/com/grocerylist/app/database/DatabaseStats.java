@@ -0,0 +1,60 @@
+package com.grocerylist.app.database;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Snapshot of the database file size and row counts, taken before and after a tombstone pass
+ */
+public class DatabaseStats {
+    public final long pageCount;
+    public final long pageSize;
+    public final long freePages;
+    public final int lists;
+    public final int listTombstones;
+    public final int items;
+    public final int itemTombstones;
+
+    private DatabaseStats(long pageCount, long pageSize, long freePages,
+                          int lists, int listTombstones, int items, int itemTombstones) {
+        this.pageCount = pageCount;
+        this.pageSize = pageSize;
+        this.freePages = freePages;
+        this.lists = lists;
+        this.listTombstones = listTombstones;
+        this.items = items;
+        this.itemTombstones = itemTombstones;
+    }
+
+    public static DatabaseStats capture(GroceryDatabase database) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        GroceryDao groceryDao = database.groceryDao();
+        return new DatabaseStats(
+                pragma(db, "page_count"),
+                pragma(db, "page_size"),
+                pragma(db, "freelist_count"),
+                groceryDao.countLists(),
+                groceryDao.countListTombstones(),
+                groceryDao.countItems(),
+                groceryDao.countItemTombstones());
+    }
+
+    public static long pragma(SupportSQLiteDatabase db, String name) {
+        try (Cursor cursor = db.query("PRAGMA " + name)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    public long getSizeBytes() {
+        return pageCount * pageSize;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return (getSizeBytes() / 1024) + " KB (" + freePages + " free pages), lists=" + lists +
+                " (" + listTombstones + " tombstones), items=" + items + " (" + itemTombstones + " tombstones)";
+    }
+}
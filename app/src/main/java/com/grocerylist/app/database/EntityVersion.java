@@ -0,0 +1,45 @@
+package com.grocerylist.app.database;
+
+import androidx.annotation.NonNull;
+
+import com.grocerylist.app.models.ListDigest;
+import com.grocerylist.app.utils.HybridLogicalClock;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lightweight (id, listId, updatedAt, isDeleted, hlc, nodeId, dirty) projection used by the bulk merge
+ * and digest upkeep, so they don't have to load full rows.
+ * For a list row, listId is the list's own id.
+ */
+public class EntityVersion {
+    @NonNull
+    public String id = "";
+    public String listId;
+    public long updatedAt;
+    public boolean isDeleted;
+    public long hlc;
+    public String nodeId;
+    public boolean dirty;
+
+    /**
+     * True if the other write should replace this one
+     */
+    public boolean isOlderThan(long otherHlc, long otherUpdatedAt, String otherNodeId) {
+        return HybridLogicalClock.compare(hlc, updatedAt, nodeId, otherHlc, otherUpdatedAt, otherNodeId) < 0;
+    }
+
+    public long digestContribution() {
+        return ListDigest.contribution(id, updatedAt, isDeleted);
+    }
+
+    public static Map<String, EntityVersion> toMap(List<EntityVersion> versions) {
+        Map<String, EntityVersion> map = new HashMap<>(versions.size() * 2);
+        for (EntityVersion version : versions) {
+            map.put(version.id, version);
+        }
+        return map;
+    }
+}
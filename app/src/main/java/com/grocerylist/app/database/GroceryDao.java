@@ -2,39 +2,52 @@ package com.grocerylist.app.database;
 
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
-import androidx.room.Insert;
-import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
-import androidx.room.Update;
+import androidx.room.Transaction;
+import androidx.room.Upsert;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemFields;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.ListDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
 public interface GroceryDao {
+    // Stay well below SQLite's 999 bound-variable limit for IN (...) lookups
+    int MERGE_CHUNK_SIZE = 500;
+
     @Query("SELECT * FROM grocery_lists WHERE isDeleted = 0 ORDER BY updatedAt DESC")
     LiveData<List<GroceryList>> getAllLists();
 
     @Query("SELECT * FROM grocery_items WHERE listId = :listId AND isDeleted = 0 ORDER BY priority ASC, createdAt ASC")
     LiveData<List<GroceryItem>> getItemsForList(String listId);
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertList(GroceryList list);
+    // Upsert = INSERT, or UPDATE in place on a primary key conflict. Unlike REPLACE it never
+    // deletes the old row, so a list write doesn't cascade-delete its items and rowids stay put.
+
+    @Upsert
+    void upsertList(GroceryList list);
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertItem(GroceryItem item);
+    @Upsert
+    void upsertItem(GroceryItem item);
 
-    @Update
-    void updateItem(GroceryItem item);
+    @Query("UPDATE grocery_lists SET isDeleted = 1, updatedAt = :timestamp, hlc = :hlc, nodeId = :nodeId, dirty = 1 WHERE id = :listId")
+    void deleteList(String listId, long timestamp, long hlc, String nodeId);
 
-    @Query("UPDATE grocery_lists SET isDeleted = 1, updatedAt = :timestamp WHERE id = :listId")
-    void deleteList(String listId, long timestamp);
+    @Query("UPDATE grocery_items SET isDeleted = 1, updatedAt = :timestamp, hlc = :hlc, nodeId = :nodeId, dirty = 1 WHERE id = :itemId")
+    void deleteItem(String itemId, long timestamp, long hlc, String nodeId);
 
-    @Query("UPDATE grocery_items SET isDeleted = 1, updatedAt = :timestamp WHERE id = :itemId")
-    void deleteItem(String itemId, long timestamp);
+    @Query("UPDATE grocery_items SET isDeleted = 1, updatedAt = :timestamp, hlc = :hlc, nodeId = :nodeId, dirty = 1 WHERE listId = :listId AND isDeleted = 0")
+    void deleteItemsForList(String listId, long timestamp, long hlc, String nodeId);
 
-    @Query("DELETE FROM grocery_items WHERE listId = :listId AND isCompleted = 1")
-    void clearCompletedItems(String listId);
+    // Tombstones, like every other delete - a hard delete would let the next sync bring them back
+    @Query("UPDATE grocery_items SET isDeleted = 1, updatedAt = :timestamp, hlc = :hlc, nodeId = :nodeId, dirty = 1 WHERE listId = :listId AND isCompleted = 1 AND isDeleted = 0")
+    void clearCompletedItems(String listId, long timestamp, long hlc, String nodeId);
 
     @Query("SELECT * FROM grocery_lists WHERE id = :listId")
     GroceryList getListById(String listId);
@@ -54,5 +67,346 @@ public interface GroceryDao {
     @Query("SELECT * FROM grocery_items WHERE id = :itemId")
     GroceryItem getItemByIdSync(String itemId);
 
+    // ===== TRACKED WRITES =====
+
+    // Every entity write goes through these so the list digests stay current
+
+    @Transaction
+    default void saveList(GroceryList list) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (EntityVersion previous : getListVersions(Collections.singletonList(list.getId()))) {
+            addDelta(deltas, previous.listId, previous.digestContribution());
+        }
+        upsertList(list);
+        addDelta(deltas, list.getId(), ListDigest.contribution(list.getId(), list.getUpdatedAt(), list.getIsDeleted()));
+        applyDigestDeltas(deltas);
+    }
+
+    @Transaction
+    default void saveItem(GroceryItem item) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (EntityVersion previous : getItemVersions(Collections.singletonList(item.getId()))) {
+            addDelta(deltas, previous.listId, previous.digestContribution());
+        }
+        upsertItem(item);
+        addDelta(deltas, item.getListId(), ListDigest.contribution(item.getId(), item.getUpdatedAt(), item.getIsDeleted()));
+        applyDigestDeltas(deltas);
+    }
+
+    /**
+     * Applies a local edit as a field-level patch on the stored row. Only the edited fields
+     * are written, so whatever a merge changed in the other fields since the edit started
+     * is kept. Check and write share one transaction.
+     *
+     * @param changes the edited fields and their new values, see {@link ItemFields#diff}
+     * @return the patch to upload, or null if no field changed or the item is gone or deleted
+     */
+    @Transaction
+    default ItemPatch updateItemFields(String itemId, Map<String, Object> changes, long hlc, String nodeId, long updatedAt) {
+        GroceryItem stored = getItemByIdSync(itemId);
+        if (stored == null || stored.getIsDeleted()) {
+            return null;
+        }
+        Map<String, Object> changed = ItemFields.changedFields(stored, changes);
+        if (changed.isEmpty()) {
+            return null;
+        }
+        ItemPatch patch = new ItemPatch(changed, hlc, nodeId, updatedAt);
+        ItemFields.apply(stored, patch);
+        stored.setDirty(true);
+        saveItem(stored);
+        return patch;
+    }
+
+    @Transaction
+    default void tombstoneItem(String itemId, long timestamp, long hlc, String nodeId) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (EntityVersion previous : getItemVersions(Collections.singletonList(itemId))) {
+            addDelta(deltas, previous.listId, previous.digestContribution());
+        }
+        deleteItem(itemId, timestamp, hlc, nodeId);
+        applyDigestDeltas(deltas);
+    }
+
+    /**
+     * Tombstones the list and its items together, matching the server's cascade
+     */
+    @Transaction
+    default void tombstoneList(String listId, long timestamp, long hlc, String nodeId) {
+        deleteList(listId, timestamp, hlc, nodeId);
+        deleteItemsForList(listId, timestamp, hlc, nodeId);
+        // Nothing live left in the list
+        upsertDigest(new ListDigest(listId, 0));
+    }
+
+    @Transaction
+    default void tombstoneCompletedItems(String listId, long timestamp, long hlc, String nodeId) {
+        clearCompletedItems(listId, timestamp, hlc, nodeId);
+        recomputeDigest(listId);
+    }
+
+    // ===== BULK MERGE =====
+
+    @Query("SELECT id, id AS listId, updatedAt, isDeleted, hlc, nodeId, dirty FROM grocery_lists WHERE id IN (:listIds)")
+    List<EntityVersion> getListVersions(List<String> listIds);
+
+    @Query("SELECT id, listId, updatedAt, isDeleted, hlc, nodeId, dirty FROM grocery_items WHERE id IN (:itemIds)")
+    List<EntityVersion> getItemVersions(List<String> itemIds);
+
+    @Upsert
+    void upsertLists(List<GroceryList> lists);
+
+    @Upsert
+    void upsertItems(List<GroceryItem> items);
+
+    /**
+     * Merges cloud lists in one transaction: existing versions are fetched in chunks,
+     * last-writer-wins by (hlc, nodeId) is applied in memory, and only the winners are written.
+     * A row holding the very same version is never rewritten. Lists are last-writer-wins as a whole
+     * row, so a local edit that loses is gone and its row is no longer dirty.
+     */
+    @Transaction
+    default MergeResult mergeLists(List<GroceryList> cloudLists) {
+        int inserted = 0;
+        int updated = 0;
+        Map<String, Long> deltas = new HashMap<>();
+
+        List<GroceryList> winners = new ArrayList<>();
+        for (int start = 0; start < cloudLists.size(); start += MERGE_CHUNK_SIZE) {
+            List<GroceryList> chunk = cloudLists.subList(start, Math.min(start + MERGE_CHUNK_SIZE, cloudLists.size()));
+
+            List<String> ids = new ArrayList<>(chunk.size());
+            for (GroceryList list : chunk) {
+                ids.add(list.getId());
+            }
+            Map<String, EntityVersion> localVersions = EntityVersion.toMap(getListVersions(ids));
+
+            winners.clear();
+            for (GroceryList cloudList : chunk) {
+                EntityVersion local = localVersions.get(cloudList.getId());
+                if (local == null) {
+                    if (cloudList.getIsDeleted()) {
+                        // Tombstone for a row we never had or already purged - nothing to delete
+                        continue;
+                    }
+                    inserted++;
+                } else if (local.isOlderThan(cloudList.getHlc(), cloudList.getUpdatedAt(), cloudList.getNodeId())) {
+                    updated++;
+                    addDelta(deltas, local.listId, local.digestContribution());
+                    // The cloud version replaced the whole row - nothing local is left to upload
+                    cloudList.setDirty(false);
+                } else {
+                    continue;
+                }
+                winners.add(cloudList);
+                addDelta(deltas, cloudList.getId(),
+                        ListDigest.contribution(cloudList.getId(), cloudList.getUpdatedAt(), cloudList.getIsDeleted()));
+            }
+            if (!winners.isEmpty()) {
+                upsertLists(winners);
+            }
+        }
+        applyDigestDeltas(deltas);
+
+        return new MergeResult(inserted, updated, cloudLists.size() - inserted - updated);
+    }
+
+    @Query("SELECT * FROM grocery_items WHERE id IN (:itemIds)")
+    List<GroceryItem> getItemsByIds(List<String> itemIds);
+
+    /**
+     * Merges cloud items in one transaction. Unlike lists, items are merged field by field
+     * (see {@link ItemFields}), so full local rows are loaded instead of versions.
+     * A row that already holds the merged result is never rewritten; a merged one keeps its dirty flag.
+     */
+    @Transaction
+    default MergeResult mergeItems(List<GroceryItem> cloudItems) {
+        int inserted = 0;
+        int updated = 0;
+        Map<String, Long> deltas = new HashMap<>();
+
+        List<GroceryItem> winners = new ArrayList<>();
+        for (int start = 0; start < cloudItems.size(); start += MERGE_CHUNK_SIZE) {
+            List<GroceryItem> chunk = cloudItems.subList(start, Math.min(start + MERGE_CHUNK_SIZE, cloudItems.size()));
+
+            List<String> ids = new ArrayList<>(chunk.size());
+            for (GroceryItem item : chunk) {
+                ids.add(item.getId());
+            }
+            Map<String, GroceryItem> localItems = new HashMap<>(chunk.size() * 2);
+            for (GroceryItem local : getItemsByIds(ids)) {
+                localItems.put(local.getId(), local);
+            }
+
+            winners.clear();
+            for (GroceryItem cloudItem : chunk) {
+                GroceryItem local = localItems.get(cloudItem.getId());
+                GroceryItem merged;
+                if (local == null) {
+                    if (cloudItem.getIsDeleted()) {
+                        continue;
+                    }
+                    inserted++;
+                    merged = cloudItem;
+                } else {
+                    // Captured before merge() updates the local row in place
+                    String previousListId = local.getListId();
+                    long previousContribution = ListDigest.contribution(local.getId(), local.getUpdatedAt(), local.getIsDeleted());
+                    boolean dirty = local.isDirty();
+                    merged = ItemFields.merge(local, cloudItem);
+                    if (merged == null) {
+                        continue;
+                    }
+                    // dirty is local state, never on the wire
+                    merged.setDirty(dirty);
+                    updated++;
+                    addDelta(deltas, previousListId, previousContribution);
+                }
+                winners.add(merged);
+                addDelta(deltas, merged.getListId(),
+                        ListDigest.contribution(merged.getId(), merged.getUpdatedAt(), merged.getIsDeleted()));
+            }
+            if (!winners.isEmpty()) {
+                upsertItems(winners);
+            }
+        }
+        applyDigestDeltas(deltas);
+
+        return new MergeResult(inserted, updated, cloudItems.size() - inserted - updated);
+    }
+
+    /**
+     * Merges incoming field-level deltas. Patches for items we don't have are skipped -
+     * the full row arrives with the next sync.
+     */
+    @Transaction
+    default int mergeItemPatches(List<ItemPatch> patches) {
+        int updated = 0;
+        for (ItemPatch patch : patches) {
+            GroceryItem local = getItemByIdSync(patch.getId());
+            if (local != null && ItemFields.merge(local, patch)) {
+                saveItem(local);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    // ===== DIRTY ROWS =====
+
+    // Local writes set dirty = 1; it is cleared once the server acknowledges that very version
+    // (hlc), so a newer edit made while the upload was in flight stays dirty.
+    // Rows with a pending outbox operation, or items whose list has one, are left to the outbox.
+
+    @Query("SELECT * FROM grocery_lists WHERE dirty = 1 AND id NOT IN (SELECT entityId FROM pending_operations)")
+    List<GroceryList> getDirtyLists();
+
+    @Query("SELECT * FROM grocery_items WHERE dirty = 1 AND id NOT IN (SELECT entityId FROM pending_operations) " +
+            "AND listId NOT IN (SELECT entityId FROM pending_operations)")
+    List<GroceryItem> getDirtyItems();
+
+    @Query("UPDATE grocery_lists SET dirty = 0 WHERE id = :listId AND hlc = :hlc")
+    void markListClean(String listId, long hlc);
+
+    @Query("UPDATE grocery_items SET dirty = 0 WHERE id = :itemId AND hlc = :hlc")
+    void markItemClean(String itemId, long hlc);
+
+    @Query("UPDATE grocery_lists SET dirty = 0 WHERE id = :listId AND isDeleted = 1")
+    void markListTombstoneClean(String listId);
+
+    @Query("UPDATE grocery_items SET dirty = 0 WHERE id = :itemId AND isDeleted = 1")
+    void markItemTombstoneClean(String itemId);
+
+    @Query("UPDATE grocery_items SET dirty = 0 WHERE listId = :listId AND isDeleted = 1 AND dirty = 1")
+    void markItemTombstonesCleanForList(String listId);
+
+    @Query("SELECT (SELECT COUNT(*) FROM grocery_lists WHERE dirty = 1) + (SELECT COUNT(*) FROM grocery_items WHERE dirty = 1)")
+    int countDirtyRows();
+
+    // ===== DIGESTS =====
+
+    @Query("SELECT * FROM list_digests WHERE listId = :listId")
+    ListDigest getDigest(String listId);
+
+    @Query("SELECT * FROM list_digests")
+    List<ListDigest> getAllDigests();
+
+    @Upsert
+    void upsertDigest(ListDigest digest);
+
+    @Query("DELETE FROM list_digests")
+    void deleteAllDigests();
+
+    @Query("DELETE FROM list_digests WHERE listId NOT IN (SELECT id FROM grocery_lists)")
+    int deleteOrphanDigests();
+
+    @Query("SELECT id FROM grocery_lists WHERE id NOT IN (SELECT listId FROM list_digests)")
+    List<String> getListIdsWithoutDigest();
+
+    @Query("SELECT id, id AS listId, updatedAt, isDeleted, hlc, nodeId, dirty FROM grocery_lists WHERE id = :listId " +
+            "UNION ALL SELECT id, listId, updatedAt, isDeleted, hlc, nodeId, dirty FROM grocery_items WHERE listId = :listId")
+    List<EntityVersion> getListContentVersions(String listId);
+
+    /**
+     * Full recomputation - for bulk changes to one list and lists that have no digest yet
+     */
+    @Transaction
+    default void recomputeDigest(String listId) {
+        long digest = 0;
+        for (EntityVersion version : getListContentVersions(listId)) {
+            digest ^= version.digestContribution();
+        }
+        upsertDigest(new ListDigest(listId, digest));
+    }
+
+    /**
+     * XORs each delta into the stored digest of its list
+     */
+    default void applyDigestDeltas(Map<String, Long> deltas) {
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0 || delta.getKey() == null) {
+                continue;
+            }
+            ListDigest current = getDigest(delta.getKey());
+            long digest = current == null ? 0 : current.getDigest();
+            upsertDigest(new ListDigest(delta.getKey(), digest ^ delta.getValue()));
+        }
+    }
+
+    static void addDelta(Map<String, Long> deltas, String listId, long contribution) {
+        Long current = deltas.get(listId);
+        deltas.put(listId, current == null ? contribution : current ^ contribution);
+    }
+
+    // ===== TOMBSTONES =====
+
+    /**
+     * Purges item tombstones older than the watermark, unless the item or its list
+     * still has an upload waiting in the outbox, or the delete is not acknowledged yet (dirty)
+     */
+    @Query("DELETE FROM grocery_items WHERE isDeleted = 1 AND dirty = 0 AND updatedAt < :watermark " +
+            "AND id NOT IN (SELECT entityId FROM pending_operations) " +
+            "AND listId NOT IN (SELECT entityId FROM pending_operations)")
+    int purgeItemTombstones(long watermark);
+
+    /**
+     * Purges list tombstones older than the watermark. Lists that still have any item row
+     * are kept, so the foreign key cascade never removes something we meant to keep.
+     */
+    @Query("DELETE FROM grocery_lists WHERE isDeleted = 1 AND dirty = 0 AND updatedAt < :watermark " +
+            "AND id NOT IN (SELECT entityId FROM pending_operations) " +
+            "AND NOT EXISTS (SELECT 1 FROM grocery_items WHERE grocery_items.listId = grocery_lists.id)")
+    int purgeListTombstones(long watermark);
+
+    @Query("SELECT COUNT(*) FROM grocery_lists")
+    int countLists();
+
+    @Query("SELECT COUNT(*) FROM grocery_lists WHERE isDeleted = 1")
+    int countListTombstones();
+
+    @Query("SELECT COUNT(*) FROM grocery_items")
+    int countItems();
 
-}
\ No newline at end of file
+    @Query("SELECT COUNT(*) FROM grocery_items WHERE isDeleted = 1")
+    int countItemTombstones();
+}
@@ -1,22 +1,33 @@
 package com.grocerylist.app.database;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.grocerylist.app.models.ChangeLogEntry;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ListDigest;
+import com.grocerylist.app.models.PendingOperation;
 import com.grocerylist.app.utils.Constants;
 
 @Database(
-        entities = {GroceryList.class, GroceryItem.class},
-        version = 4,
+        entities = {GroceryList.class, GroceryItem.class, PendingOperation.class, ListDigest.class,
+                ChangeLogEntry.class},
+        version = 11,
         exportSchema = false
 )
 public abstract class GroceryDatabase extends RoomDatabase {
 
     public abstract GroceryDao groceryDao();
 
+    public abstract OutboxDao outboxDao();
+
+    public abstract ChangeLogDao changeLogDao();
+
     private static volatile GroceryDatabase instance;
 
     public static GroceryDatabase getDatabase(final Context context) {
@@ -28,11 +39,148 @@ public abstract class GroceryDatabase extends RoomDatabase {
                                     GroceryDatabase.class,
                                     Constants.DATABASE_NAME
                             )
+                            .addMigrations(MIGRATIONS)
+                            // Only for versions without a migration path (before 4)
                             .fallbackToDestructiveMigration() // KEY FIX: Allows database recreation
+                            .addCallback(new Callback() {
+                                @Override
+                                public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                                    createChangeLogTriggers(db);
+                                }
+
+                                @Override
+                                public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+                                    // Local rows are gone, so a delta from the old cursor would miss them
+                                    context.getApplicationContext()
+                                            .getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE)
+                                            .edit()
+                                            .remove(Constants.PREF_SYNC_CURSOR)
+                                            .remove(Constants.PREF_SYNC_ETAG)
+                                            .remove(Constants.PREF_SYNC_ETAG_SCOPE)
+                                            .remove(Constants.PREF_SYNC_PAGE_TOKEN)
+                                            .remove(Constants.PREF_SYNC_PAGE_ROWS)
+                                            .remove(Constants.PREF_SYNC_PAGE_HIGH_WATER)
+                                            .apply();
+                                }
+                            })
                             .build();
                 }
             }
         }
         return instance;
     }
+
+    // ===== MIGRATIONS =====
+
+    // Pending operations and dirty rows are edits the server hasn't seen yet, so upgrades
+    // must keep them. New columns default to what a row written before them would have.
+
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `pending_operations` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`type` TEXT, `entityId` TEXT, `payload` TEXT, `attempts` INTEGER NOT NULL, "
+                    + "`nextAttemptAt` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_entityId` ON `pending_operations` (`entityId`)");
+        }
+    };
+
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `pending_operations` ADD COLUMN `isCreate` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // Left empty - digests of lists without one are computed on demand
+            db.execSQL("CREATE TABLE IF NOT EXISTS `list_digests` (`listId` TEXT NOT NULL, "
+                    + "`digest` INTEGER NOT NULL, PRIMARY KEY(`listId`))");
+        }
+    };
+
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // hlc 0 marks a legacy row, ordered by updatedAt
+            db.execSQL("ALTER TABLE `grocery_lists` ADD COLUMN `hlc` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `grocery_lists` ADD COLUMN `nodeId` TEXT");
+            db.execSQL("ALTER TABLE `grocery_items` ADD COLUMN `hlc` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `grocery_items` ADD COLUMN `nodeId` TEXT");
+        }
+    };
+
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // No clocks - every field takes the row version
+            db.execSQL("ALTER TABLE `grocery_items` ADD COLUMN `fieldClocks` TEXT");
+        }
+    };
+
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `grocery_lists` ADD COLUMN `dirty` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_grocery_lists_dirty` ON `grocery_lists` (`dirty`)");
+            db.execSQL("ALTER TABLE `grocery_items` ADD COLUMN `dirty` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_grocery_items_dirty` ON `grocery_items` (`dirty`)");
+            // Rows still waiting in the outbox were never acknowledged either
+            db.execSQL("UPDATE `grocery_lists` SET `dirty` = 1 WHERE `id` IN (SELECT `entityId` FROM `pending_operations`)");
+            db.execSQL("UPDATE `grocery_items` SET `dirty` = 1 WHERE `id` IN (SELECT `entityId` FROM `pending_operations`)");
+        }
+    };
+
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // The triggers that fill it are created in onOpen
+            db.execSQL("CREATE TABLE IF NOT EXISTS `change_log` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`entity` TEXT NOT NULL, `entityId` TEXT NOT NULL, `listId` TEXT, `op` TEXT NOT NULL, "
+                    + "`changedAt` INTEGER NOT NULL)");
+        }
+    };
+
+    static final Migration[] MIGRATIONS = {
+            MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8,
+            MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11
+    };
+
+    // ===== CHANGE FEED =====
+
+    // Milliseconds since the epoch, evaluated inside SQLite
+    private static final String NOW_MS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    // An update only counts if the row's version or deleted state moved; flag-only
+    // updates such as clearing dirty after an upload are not changes
+    private static final String VERSION_CHANGED =
+            "OLD.hlc IS NOT NEW.hlc OR OLD.updatedAt IS NOT NEW.updatedAt OR OLD.isDeleted IS NOT NEW.isDeleted";
+
+    /**
+     * Every write to the entity tables appends to change_log from inside SQLite, so
+     * nothing in the app can bypass it. Runs on each open; IF NOT EXISTS makes it a no-op
+     * once the triggers are there (a destructive migration drops them with the tables).
+     */
+    static void createChangeLogTriggers(SupportSQLiteDatabase db) {
+        createChangeLogTriggers(db, "grocery_lists", ChangeLogEntry.ENTITY_LIST, "id");
+        createChangeLogTriggers(db, "grocery_items", ChangeLogEntry.ENTITY_ITEM, "listId");
+    }
+
+    private static void createChangeLogTriggers(SupportSQLiteDatabase db, String table, String entity, String listIdColumn) {
+        String insertInto = "INSERT INTO change_log (entity, entityId, listId, op, changedAt) VALUES ('" + entity + "', ";
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_change_insert AFTER INSERT ON " + table + " BEGIN "
+                + insertInto + "NEW.id, NEW." + listIdColumn + ", '" + ChangeLogEntry.OP_INSERT + "', " + NOW_MS + "); END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_change_update AFTER UPDATE ON " + table
+                + " WHEN " + VERSION_CHANGED + " BEGIN "
+                + insertInto + "NEW.id, NEW." + listIdColumn + ", "
+                + "CASE WHEN NEW.isDeleted = 1 AND OLD.isDeleted = 0 THEN '" + ChangeLogEntry.OP_DELETE
+                + "' ELSE '" + ChangeLogEntry.OP_UPDATE + "' END, " + NOW_MS + "); END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_change_delete AFTER DELETE ON " + table + " BEGIN "
+                + insertInto + "OLD.id, OLD." + listIdColumn + ", '" + ChangeLogEntry.OP_DELETE + "', " + NOW_MS + "); END");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.grocerylist.app.database;
+
+/**
+ * Outcome of a bulk merge of cloud rows into the local database
+ */
+public class MergeResult {
+    public final int inserted;
+    public final int updated;
+    public final int skipped;
+
+    public MergeResult(int inserted, int updated, int skipped) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.skipped = skipped;
+    }
+
+    public int getWritten() {
+        return inserted + updated;
+    }
+
+    @Override
+    public String toString() {
+        return inserted + " inserted, " + updated + " updated, " + skipped + " skipped";
+    }
+}
@@ -0,0 +1,41 @@
+package com.grocerylist.app.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import com.grocerylist.app.models.PendingOperation;
+import java.util.List;
+
+@Dao
+public interface OutboxDao {
+    @Insert
+    long insert(PendingOperation operation);
+
+    @Query("SELECT * FROM pending_operations ORDER BY seq ASC LIMIT :limit")
+    List<PendingOperation> getOldest(int limit);
+
+    @Query("SELECT * FROM pending_operations WHERE entityId = :entityId AND seq > :afterSeq ORDER BY seq ASC")
+    List<PendingOperation> getPendingForEntity(String entityId, long afterSeq);
+
+    @Query("DELETE FROM pending_operations WHERE seq = :seq")
+    void delete(long seq);
+
+    /**
+     * Replaces what a pending operation sends while keeping its place in the queue
+     */
+    @Query("UPDATE pending_operations SET type = :type, payload = :payload, isCreate = :isCreate WHERE seq = :seq")
+    void rewrite(long seq, String type, String payload, boolean isCreate);
+
+    @Query("UPDATE pending_operations SET attempts = :attempts, nextAttemptAt = :nextAttemptAt WHERE seq = :seq")
+    void scheduleRetry(long seq, int attempts, long nextAttemptAt);
+
+    @Query("SELECT COUNT(*) FROM pending_operations")
+    int getPendingCount();
+
+    @Query("SELECT COUNT(*) FROM pending_operations")
+    LiveData<Integer> getPendingCountLive();
+
+    @Query("DELETE FROM pending_operations")
+    void deleteAll();
+}
@@ -36,12 +36,13 @@ public class EditItemDialogFragment extends DialogFragment {
     private static final String ARG_LIST_ID = "list_id";
 
     private ItemDialogHelper.ItemDialogViews views;
+    private GroceryItem originalItem; // As the dialog found it - what the edit is diffed against
     private GroceryItem currentItem;
     private OnItemUpdatedListener listener;
     private GroceryItemSuggestionAdapter suggestionAdapter;
 
     public interface OnItemUpdatedListener {
-        void onItemUpdated(GroceryItem item);
+        void onItemUpdated(GroceryItem original, GroceryItem updated);
     }
 
     public static EditItemDialogFragment newInstance(GroceryItem item) {
@@ -67,6 +68,7 @@ public class EditItemDialogFragment extends DialogFragment {
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        originalItem = createItemFromArguments();
         currentItem = createItemFromArguments();
     }
 
@@ -96,7 +98,7 @@ public class EditItemDialogFragment extends DialogFragment {
                     if (currentItem != null) {
                         currentItem.setDeleted(true);
                         if (listener != null) {
-                            listener.onItemUpdated(currentItem);
+                            listener.onItemUpdated(originalItem, currentItem);
                         }
                     }
                 });
@@ -232,7 +234,7 @@ public class EditItemDialogFragment extends DialogFragment {
         currentItem.setUpdatedAt(System.currentTimeMillis());
 
         if (listener != null) {
-            listener.onItemUpdated(currentItem);
+            listener.onItemUpdated(originalItem, currentItem);
         }
     }
 }
\ No newline at end of file
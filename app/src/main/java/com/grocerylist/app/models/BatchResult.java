@@ -0,0 +1,28 @@
+package com.grocerylist.app.models;
+
+import java.util.List;
+
+/**
+ * Response of POST api/batch. The server applies mutations in order and returns
+ * one status per mutation, in the same order as the request.
+ */
+@SuppressWarnings("unused")  // Used by Gson for JSON deserialization
+public class BatchResult {
+    private List<Status> results;
+
+    public List<Status> getResults() { return results; }
+
+    public static class Status {
+        private String entityId;
+        private int code;           // HTTP-style status for this mutation
+        private String message;
+
+        public String getEntityId() { return entityId; }
+        public int getCode() { return code; }
+        public String getMessage() { return message; }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+}
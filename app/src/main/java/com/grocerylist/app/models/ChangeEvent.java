@@ -0,0 +1,36 @@
+package com.grocerylist.app.models;
+
+/**
+ * One message on the live change stream. The server sends one per committed change,
+ * carrying whichever of list / item / patch matches the type - usually a patch,
+ * which is only the changed fields: {"type":"patch","patch":{"id":"...","fields":{...},...}}
+ */
+@SuppressWarnings("unused")  // Used by Gson for JSON deserialization
+public class ChangeEvent {
+    public static final String TYPE_LIST = "list";
+    public static final String TYPE_ITEM = "item";
+    public static final String TYPE_PATCH = "patch";
+
+    private String type;
+    private GroceryList list;
+    private GroceryItem item;
+    private ItemPatch patch;
+
+    public String getType() { return type; }
+    public GroceryList getList() { return list; }
+    public GroceryItem getItem() { return item; }
+    public ItemPatch getPatch() { return patch; }
+
+    /**
+     * HybridLogicalClock time of the change, 0 if the event carries none
+     */
+    public long getHlc() {
+        if (list != null) {
+            return list.getHlc();
+        }
+        if (item != null) {
+            return item.getHlc();
+        }
+        return patch != null ? patch.getHlc() : 0;
+    }
+}
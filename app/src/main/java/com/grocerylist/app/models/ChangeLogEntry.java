@@ -0,0 +1,58 @@
+package com.grocerylist.app.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * One row of the change feed. Written only by the SQLite triggers on grocery_lists and
+ * grocery_items (see GroceryDatabase), never by app code, so no write path can forget it.
+ * seq is AUTOINCREMENT: strictly increasing and never reused, even after pruning.
+ */
+@Entity(tableName = "change_log")
+public class ChangeLogEntry {
+    public static final String ENTITY_LIST = "list";
+    public static final String ENTITY_ITEM = "item";
+
+    public static final String OP_INSERT = "I";
+    public static final String OP_UPDATE = "U";
+    public static final String OP_DELETE = "D"; // Soft delete (tombstone) as well as a purge
+
+    @PrimaryKey(autoGenerate = true)
+    private long seq;
+
+    @NonNull
+    private String entity = "";
+    @NonNull
+    private String entityId = "";
+    private String listId;      // For a list row its own id, so list-level consumers need one column
+    @NonNull
+    private String op = "";
+    private long changedAt;
+
+    // Getters and setters
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+
+    @NonNull
+    public String getEntity() { return entity; }
+    public void setEntity(@NonNull String entity) { this.entity = entity; }
+
+    @NonNull
+    public String getEntityId() { return entityId; }
+    public void setEntityId(@NonNull String entityId) { this.entityId = entityId; }
+
+    public String getListId() { return listId; }
+    public void setListId(String listId) { this.listId = listId; }
+
+    @NonNull
+    public String getOp() { return op; }
+    public void setOp(@NonNull String op) { this.op = op; }
+
+    public long getChangedAt() { return changedAt; }
+    public void setChangedAt(long changedAt) { this.changedAt = changedAt; }
+
+    public boolean isList() {
+        return ENTITY_LIST.equals(entity);
+    }
+}
@@ -0,0 +1,19 @@
+package com.grocerylist.app.models;
+
+import java.util.Map;
+
+/**
+ * Digest handshake (POST api/sync/digests): the client's digest of every list it holds.
+ * The server answers in the api/sync shape with full content only for lists whose digest
+ * differs or that the client doesn't have.
+ */
+@SuppressWarnings("unused")  // Fields are serialized by Gson
+public class DigestRequest {
+    private final String userId;
+    private final Map<String, String> digests; // listId -> ListDigest.toHex()
+
+    public DigestRequest(String userId, Map<String, String> digests) {
+        this.userId = userId;
+        this.digests = digests;
+    }
+}
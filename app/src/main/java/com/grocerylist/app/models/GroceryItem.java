@@ -17,7 +17,7 @@ import java.util.UUID;
                 childColumns = "listId",
                 onDelete = ForeignKey.CASCADE
         ),
-        indices = {@Index("listId")} // ADDED: Index on listId to fix foreign key warning
+        indices = {@Index("listId"), @Index("dirty")} // ADDED: Index on listId to fix foreign key warning
 )
 public class GroceryItem implements Serializable {
     @SuppressWarnings("unused")
@@ -40,6 +40,11 @@ public class GroceryItem implements Serializable {
     private long updatedAt;
     @SuppressWarnings("unused") // Room uses field via reflection
     private boolean isDeleted;
+    private long hlc;      // HybridLogicalClock timestamp of the last write, 0 for legacy rows
+    private String nodeId; // Device that made the last write - breaks hlc ties
+    private String fieldClocks; // JSON of per-field hlc stamps that lag the row's, see ItemFields
+    @LocalOnly
+    private boolean dirty; // Local write the server hasn't acknowledged yet
     private boolean onOffer;
     private String price;
 
@@ -105,6 +110,18 @@ public class GroceryItem implements Serializable {
     public boolean getIsDeleted() { return isDeleted; }
     public void setDeleted(boolean deleted) { isDeleted = deleted; }
 
+    public long getHlc() { return hlc; }
+    public void setHlc(long hlc) { this.hlc = hlc; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public String getFieldClocks() { return fieldClocks; }
+    public void setFieldClocks(String fieldClocks) { this.fieldClocks = fieldClocks; }
+
+    public boolean isDirty() { return dirty; }
+    public void setDirty(boolean dirty) { this.dirty = dirty; }
+
     public boolean isOnOffer() { return onOffer; }
     public void setOnOffer(boolean onOffer) { this.onOffer = onOffer; }
 
@@ -3,11 +3,15 @@ package com.grocerylist.app.models;
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import java.io.Serializable;
 import java.util.UUID;
 
-@Entity(tableName = "grocery_lists")
+@Entity(
+        tableName = "grocery_lists",
+        indices = {@Index("dirty")}
+)
 public class GroceryList implements Serializable {
     @SuppressWarnings("unused") // Room uses field via reflection
     private static final long serialVersionUID = 1L;
@@ -26,6 +30,10 @@ public class GroceryList implements Serializable {
     private long updatedAt;
     @SuppressWarnings("unused") // Room uses field via reflection
     private boolean isDeleted;
+    private long hlc;      // HybridLogicalClock timestamp of the last write, 0 for legacy rows
+    private String nodeId; // Device that made the last write - breaks hlc ties
+    @LocalOnly
+    private boolean dirty; // Local write the server hasn't acknowledged yet
 
     // Room will use this no-arg constructor
     public GroceryList() {
@@ -64,4 +72,13 @@ public class GroceryList implements Serializable {
 
     public boolean getIsDeleted() { return isDeleted; }
     public void setDeleted(boolean deleted) { isDeleted = deleted; }
+
+    public long getHlc() { return hlc; }
+    public void setHlc(long hlc) { this.hlc = hlc; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public boolean isDirty() { return dirty; }
+    public void setDirty(boolean dirty) { this.dirty = dirty; }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package com.grocerylist.app.models;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.grocerylist.app.utils.HybridLogicalClock;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Field-level versioning for GroceryItem.
+ *
+ * Every editable field has its own HybridLogicalClock stamp, kept in the item's
+ * fieldClocks column as JSON. A field without an entry takes the "*" entry, or failing that
+ * the row's own version - so legacy rows need no clocks at all.
+ * Merging picks the newer value per field, so two devices editing different fields of
+ * the same item (one ticks it off, the other fixes the quantity) both keep their edit.
+ * Deletes still win or lose for the row as a whole.
+ */
+public final class ItemFields {
+    // Names match the GroceryItem JSON keys
+    public static final String NAME = "name";
+    public static final String QUANTITY = "quantity";
+    public static final String UNIT = "unit";
+    public static final String NOTES = "notes";
+    public static final String CATEGORY = "category";
+    public static final String COMPLETED = "isCompleted";
+    public static final String PRIORITY = "priority";
+    public static final String ON_OFFER = "onOffer";
+    public static final String PRICE = "price";
+
+    private static final String[] ALL = {
+            NAME, QUANTITY, UNIT, NOTES, CATEGORY, COMPLETED, PRIORITY, ON_OFFER, PRICE
+    };
+
+    private static final String DEFAULT_CLOCK = "*";
+
+    private static final Gson gson = new Gson();
+    private static final Type CLOCKS_TYPE = new TypeToken<Map<String, Long>>() {}.getType();
+
+    private ItemFields() {
+    }
+
+    // ===== CHANGE TRACKING =====
+
+    /**
+     * Fields whose value differs between the two versions, mapped to the new value
+     */
+    public static Map<String, Object> diff(GroceryItem before, GroceryItem after) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (String field : ALL) {
+            Object value = get(after, field);
+            if (!Objects.equals(get(before, field), value)) {
+                changes.put(field, value);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * The entries of an edit that would actually change the item
+     */
+    public static Map<String, Object> changedFields(GroceryItem item, Map<String, Object> changes) {
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (!Objects.equals(get(item, change.getKey()), change.getValue())) {
+                changed.put(change.getKey(), change.getValue());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Applies a local edit: sets the values and stamps just those fields with the edit's time
+     */
+    public static void apply(GroceryItem item, ItemPatch patch) {
+        Map<String, Long> clocks = resolveClocks(item);
+        for (Map.Entry<String, Object> change : patch.getFields().entrySet()) {
+            if (set(item, change.getKey(), change.getValue())) {
+                clocks.put(change.getKey(), patch.getHlc());
+            }
+        }
+        item.setHlc(patch.getHlc());
+        item.setNodeId(patch.getNodeId());
+        item.setUpdatedAt(patch.getUpdatedAt());
+        writeClocks(item, clocks);
+    }
+
+    // ===== MERGING =====
+
+    /**
+     * Merges a remote version of the item into the local one, field by field.
+     *
+     * @return the row to store (the local item, updated in place, or the remote one),
+     *         or null if the local row already holds the result
+     */
+    public static GroceryItem merge(GroceryItem local, GroceryItem remote) {
+        int rowOrder = HybridLogicalClock.compare(local.getHlc(), local.getUpdatedAt(), local.getNodeId(),
+                remote.getHlc(), remote.getUpdatedAt(), remote.getNodeId());
+        if (rowOrder == 0) {
+            return null; // Same write
+        }
+        if (local.getIsDeleted() || remote.getIsDeleted()) {
+            // A delete removes the whole row, so it is decided row-wise
+            return rowOrder < 0 ? remote : null;
+        }
+
+        Map<String, Long> localClocks = resolveClocks(local);
+        Map<String, Long> remoteClocks = resolveClocks(remote);
+        boolean changed = rowOrder < 0;
+        for (String field : ALL) {
+            long localClock = localClocks.get(field);
+            long remoteClock = remoteClocks.get(field);
+            if (wins(remoteClock, remote.getNodeId(), localClock, local.getNodeId())) {
+                changed |= set(local, field, get(remote, field));
+                localClocks.put(field, remoteClock);
+            }
+        }
+        if (!changed) {
+            return null;
+        }
+
+        if (rowOrder < 0) {
+            local.setListId(remote.getListId());
+            local.setHlc(remote.getHlc());
+            local.setNodeId(remote.getNodeId());
+        }
+        // Matches the server, which keeps the latest updatedAt of the two
+        local.setUpdatedAt(Math.max(local.getUpdatedAt(), remote.getUpdatedAt()));
+        writeClocks(local, localClocks);
+        return local;
+    }
+
+    /**
+     * Merges an incoming field-level delta into the local item.
+     *
+     * @return true if the item changed and must be stored
+     */
+    public static boolean merge(GroceryItem local, ItemPatch patch) {
+        if (local.getIsDeleted()) {
+            return false;
+        }
+
+        Map<String, Long> clocks = resolveClocks(local);
+        boolean changed = false;
+        for (Map.Entry<String, Object> change : patch.getFields().entrySet()) {
+            Long localClock = clocks.get(change.getKey());
+            if (localClock != null && wins(patch.getHlc(), patch.getNodeId(), localClock, local.getNodeId())) {
+                changed |= set(local, change.getKey(), change.getValue());
+                clocks.put(change.getKey(), patch.getHlc());
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+
+        if (HybridLogicalClock.compare(local.getHlc(), local.getUpdatedAt(), local.getNodeId(),
+                patch.getHlc(), patch.getUpdatedAt(), patch.getNodeId()) < 0) {
+            local.setHlc(patch.getHlc());
+            local.setNodeId(patch.getNodeId());
+        }
+        local.setUpdatedAt(Math.max(local.getUpdatedAt(), patch.getUpdatedAt()));
+        writeClocks(local, clocks);
+        return true;
+    }
+
+    private static boolean wins(long clock, String nodeId, long otherClock, String otherNodeId) {
+        // Field clocks are already in HLC space, so updatedAt plays no part
+        return HybridLogicalClock.compare(otherClock, 0, otherNodeId, clock, 0, nodeId) < 0;
+    }
+
+    // ===== CLOCKS =====
+
+    /**
+     * Stamp of every field, falling back to "*" and then the row version for fields without an entry
+     */
+    private static Map<String, Long> resolveClocks(GroceryItem item) {
+        Map<String, Long> explicit = null;
+        if (item.getFieldClocks() != null && !item.getFieldClocks().isEmpty()) {
+            explicit = gson.fromJson(item.getFieldClocks(), CLOCKS_TYPE);
+        }
+
+        Long fallback = explicit != null ? explicit.get(DEFAULT_CLOCK) : null;
+        long defaultClock = fallback != null ? fallback : HybridLogicalClock.versionOf(item.getHlc(), item.getUpdatedAt());
+        Map<String, Long> clocks = new LinkedHashMap<>();
+        for (String field : ALL) {
+            Long clock = explicit != null ? explicit.get(field) : null;
+            clocks.put(field, clock != null ? clock : defaultClock);
+        }
+        return clocks;
+    }
+
+    /**
+     * Stores the most common stamp as "*" (left out when it is the row version)
+     * and only the fields that differ from it - usually one or two entries
+     */
+    private static void writeClocks(GroceryItem item, Map<String, Long> clocks) {
+        Map<Long, Integer> occurrences = new HashMap<>();
+        long defaultClock = HybridLogicalClock.versionOf(item.getHlc(), item.getUpdatedAt());
+        int defaultCount = 0;
+        for (long clock : clocks.values()) {
+            Integer count = occurrences.get(clock);
+            count = count == null ? 1 : count + 1;
+            occurrences.put(clock, count);
+            if (count > defaultCount) {
+                defaultClock = clock;
+                defaultCount = count;
+            }
+        }
+
+        Map<String, Long> explicit = new LinkedHashMap<>();
+        if (defaultClock != HybridLogicalClock.versionOf(item.getHlc(), item.getUpdatedAt())) {
+            explicit.put(DEFAULT_CLOCK, defaultClock);
+        }
+        for (Map.Entry<String, Long> clock : clocks.entrySet()) {
+            if (clock.getValue() != defaultClock) {
+                explicit.put(clock.getKey(), clock.getValue());
+            }
+        }
+        item.setFieldClocks(explicit.isEmpty() ? null : gson.toJson(explicit));
+    }
+
+    // ===== FIELD ACCESS =====
+
+    private static Object get(GroceryItem item, String field) {
+        switch (field) {
+            case NAME: return item.getName();
+            case QUANTITY: return item.getQuantity();
+            case UNIT: return item.getUnit();
+            case NOTES: return item.getNotes();
+            case CATEGORY: return item.getCategory();
+            case COMPLETED: return item.isCompleted();
+            case PRIORITY: return item.getPriority();
+            case ON_OFFER: return item.isOnOffer();
+            case PRICE: return item.getPrice();
+            default: return null;
+        }
+    }
+
+    /**
+     * Sets one field from a value that may have come through Gson (numbers arrive as Double)
+     *
+     * @return true if the value actually changed
+     */
+    private static boolean set(GroceryItem item, String field, Object value) {
+        Object before = get(item, field);
+        switch (field) {
+            case NAME: item.setName(asString(value)); break;
+            case QUANTITY: item.setQuantity(asString(value)); break;
+            case UNIT: item.setUnit(asString(value)); break;
+            case NOTES: item.setNotes(asString(value)); break;
+            case CATEGORY: item.setCategory(asString(value)); break;
+            case COMPLETED: item.setCompleted(Boolean.TRUE.equals(value)); break;
+            case PRIORITY: item.setPriority(value instanceof Number ? ((Number) value).intValue() : 0); break;
+            case ON_OFFER: item.setOnOffer(Boolean.TRUE.equals(value)); break;
+            case PRICE: item.setPrice(asString(value)); break;
+            default: return false; // Field from a newer client - not ours to store
+        }
+        return !Objects.equals(before, get(item, field));
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.grocerylist.app.models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Field-level change to one item: only the fields that changed, stamped with the
+ * HybridLogicalClock time of the edit. Sent as PATCH api/items/{id} and received in
+ * sync payloads ("patches"), e.g. {"fields":{"isCompleted":true},"hlc":...,"nodeId":"..."}.
+ * Field names are the ItemFields constants.
+ */
+@SuppressWarnings("unused")  // Fields are serialized by Gson
+public class ItemPatch {
+    private String id;          // Item id - only set on incoming patches, the URL carries it on upload
+    private Map<String, Object> fields;
+    private long hlc;
+    private String nodeId;
+    private long updatedAt;
+
+    // Gson will use this no-arg constructor
+    public ItemPatch() {
+        this.fields = new LinkedHashMap<>();
+    }
+
+    public ItemPatch(Map<String, Object> fields, long hlc, String nodeId, long updatedAt) {
+        this.fields = fields;
+        this.hlc = hlc;
+        this.nodeId = nodeId;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Folds a later patch of the same item into this one; its values and stamp win
+     */
+    public void mergeLater(ItemPatch later) {
+        fields.putAll(later.fields);
+        hlc = later.hlc;
+        nodeId = later.nodeId;
+        updatedAt = later.updatedAt;
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public Map<String, Object> getFields() { return fields; }
+    public long getHlc() { return hlc; }
+    public String getNodeId() { return nodeId; }
+    public long getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,79 @@
+package com.grocerylist.app.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Content digest of one list: the XOR of hash(id, updatedAt) over the list row and its
+ * items that are not deleted. XOR makes it order-independent and lets a single write
+ * update it in O(1): XOR out the old version, XOR in the new one.
+ *
+ * The backend computes the same value, so comparing digests tells us which lists
+ * changed without transferring them (a one-level Merkle comparison).
+ */
+@Entity(tableName = "list_digests")
+public class ListDigest {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @PrimaryKey
+    @NonNull
+    private String listId = "";
+    private long digest;
+
+    // Room will use this no-arg constructor
+    public ListDigest() {
+    }
+
+    @Ignore
+    public ListDigest(@NonNull String listId, long digest) {
+        this.listId = listId;
+        this.digest = digest;
+    }
+
+    @NonNull
+    public String getListId() { return listId; }
+    public void setListId(@NonNull String listId) { this.listId = listId; }
+
+    public long getDigest() { return digest; }
+    public void setDigest(long digest) { this.digest = digest; }
+
+    /**
+     * Wire form: 16 lower-case hex digits. Keeps all 64 bits intact for JSON number parsers.
+     */
+    public String toHex() {
+        return String.format("%016x", digest);
+    }
+
+    // ===== HASHING =====
+
+    /**
+     * What one row adds to its list's digest. Deleted rows add nothing, so purging
+     * tombstones never changes a digest.
+     */
+    public static long contribution(String id, long updatedAt, boolean isDeleted) {
+        return isDeleted ? 0 : hash(id, updatedAt);
+    }
+
+    /**
+     * FNV-1a over the UTF-8 id, combined with updatedAt through the splitmix64 finalizer
+     */
+    public static long hash(String id, long updatedAt) {
+        long h = FNV_OFFSET;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= FNV_PRIME;
+        }
+        return mix(h ^ mix(updatedAt));
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
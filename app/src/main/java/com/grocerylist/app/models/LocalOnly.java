@@ -0,0 +1,16 @@
+package com.grocerylist.app.models;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a stored field that is device state rather than data, such as the dirty flag.
+ * Room keeps it; {@link com.grocerylist.app.utils.JsonUtils#GSON} leaves it out of every
+ * request body and ignores it in responses. (transient would hide it from Room too.)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface LocalOnly {
+}
@@ -0,0 +1,45 @@
+package com.grocerylist.app.models;
+
+/**
+ * One entry of a batched mutation request (POST api/batch).
+ * Exactly one of list / item is set for upserts, patches carry only the changed fields
+ * and deletes only carry the id.
+ */
+@SuppressWarnings("unused")  // Fields are serialized by Gson
+public class Mutation {
+    private final String type;      // One of the PendingOperation.TYPE_* values
+    private final String entityId;
+    private GroceryList list;
+    private GroceryItem item;
+    private ItemPatch patch;
+
+    public Mutation(String type, String entityId) {
+        this.type = type;
+        this.entityId = entityId;
+    }
+
+    public static Mutation upsertList(GroceryList list) {
+        Mutation mutation = new Mutation(PendingOperation.TYPE_UPSERT_LIST, list.getId());
+        mutation.list = list;
+        return mutation;
+    }
+
+    public static Mutation upsertItem(GroceryItem item) {
+        Mutation mutation = new Mutation(PendingOperation.TYPE_UPSERT_ITEM, item.getId());
+        mutation.item = item;
+        return mutation;
+    }
+
+    public static Mutation patchItem(String itemId, ItemPatch patch) {
+        Mutation mutation = new Mutation(PendingOperation.TYPE_PATCH_ITEM, itemId);
+        mutation.patch = patch;
+        return mutation;
+    }
+
+    // Getters
+    public String getType() { return type; }
+    public String getEntityId() { return entityId; }
+    public GroceryList getList() { return list; }
+    public GroceryItem getItem() { return item; }
+    public ItemPatch getPatch() { return patch; }
+}
@@ -0,0 +1,71 @@
+package com.grocerylist.app.models;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A local mutation waiting to be uploaded to the backend.
+ * Rows are drained strictly in seq order by OutboxManager.
+ */
+@Entity(
+        tableName = "pending_operations",
+        indices = {@Index("entityId")}
+)
+public class PendingOperation {
+    public static final String TYPE_UPSERT_LIST = "UPSERT_LIST";
+    public static final String TYPE_DELETE_LIST = "DELETE_LIST";
+    public static final String TYPE_UPSERT_ITEM = "UPSERT_ITEM";
+    public static final String TYPE_DELETE_ITEM = "DELETE_ITEM";
+    public static final String TYPE_PATCH_ITEM = "PATCH_ITEM";
+    public static final String TYPE_CLEAR_COMPLETED = "CLEAR_COMPLETED";
+
+    @PrimaryKey(autoGenerate = true)
+    private long seq;
+
+    private String type;
+    private String entityId;
+    private String payload;     // JSON of the entity for upserts, of the ItemPatch for patches, null otherwise
+    private boolean isCreate;   // Upsert of an entity the server has never seen
+    private int attempts;
+    private long nextAttemptAt;
+    private long createdAt;
+
+    // Room will use this no-arg constructor
+    public PendingOperation() {
+    }
+
+    @Ignore
+    public PendingOperation(String type, String entityId, String payload) {
+        this.type = type;
+        this.entityId = entityId;
+        this.payload = payload;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    // Getters and setters
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getEntityId() { return entityId; }
+    public void setEntityId(String entityId) { this.entityId = entityId; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public boolean isCreate() { return isCreate; }
+    public void setCreate(boolean create) { isCreate = create; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public long getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(long nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+}
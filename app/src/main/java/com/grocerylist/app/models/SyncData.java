@@ -6,6 +6,7 @@ import java.util.List;
 public class SyncData {
     private final List<GroceryList> lists;
     private List<GroceryItem> items;
+    private String cursor; // Server-issued position to request the next delta from
 
     public SyncData(List<GroceryList> lists, List<GroceryItem> items) {
         this.lists = lists;
@@ -17,4 +18,7 @@ public class SyncData {
 
     public List<GroceryItem> getItems() { return items; }
     public void setItems(List<GroceryItem> items) { this.items = items; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.grocerylist.app.repository;
+
+import android.content.SharedPreferences;
+
+import java.util.Locale;
+
+/**
+ * Decides how long smartSync waits between syncs, from how often remote changes arrive.
+ *
+ * Every completed sync reports how many rows it actually merged (rows that were already
+ * up to date don't count). That count over the time since the previous sync is one sample
+ * of the change rate, smoothed with an exponential moving average. The interval aims for
+ * about one remote change per sync: a household mid-shop editing every few seconds gets
+ * MIN_INTERVAL_MS, and each quiet sync lets the rate decay so the interval stretches
+ * geometrically towards MAX_INTERVAL_MS. A single busy sync pulls it right back down.
+ *
+ * State lives in SharedPreferences so it survives restarts.
+ */
+public class AdaptiveSyncScheduler {
+    private static final String TAG = "GrocerySync";
+    static final long MIN_INTERVAL_MS = 10000;             // 10 seconds
+    static final long MAX_INTERVAL_MS = 15 * 60 * 1000;    // 15 minutes
+    private static final long INITIAL_INTERVAL_MS = 20000; // The old fixed interval
+    private static final double SMOOTHING = 0.3;           // Weight of the newest sample
+    private static final double TARGET_CHANGES_PER_SYNC = 1.0;
+
+    private static final String PREF_INTERVAL = "adaptive_sync_interval";
+    private static final String PREF_CHANGE_RATE = "adaptive_sync_change_rate"; // Changes per minute
+    private static final String PREF_REASON = "adaptive_sync_reason";
+    private static final String PREF_LAST_SAMPLE = "adaptive_sync_last_sample";
+
+    private final SharedPreferences preferences;
+
+    public AdaptiveSyncScheduler(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * True once the current interval has passed since the last sync
+     */
+    public boolean isDue(long lastSyncTime, long now) {
+        return now - lastSyncTime >= getIntervalMs();
+    }
+
+    /**
+     * Feeds one completed sync into the estimate and recomputes the interval
+     *
+     * @param rowsChanged rows the sync inserted or updated locally, negative if the sync
+     *                    was a full download that says nothing about the change rate
+     */
+    public synchronized void onSyncCompleted(int rowsChanged, long now) {
+        long lastSample = preferences.getLong(PREF_LAST_SAMPLE, 0);
+        if (rowsChanged < 0 || lastSample == 0 || now <= lastSample) {
+            // Nothing to measure the first change count against yet
+            preferences.edit().putLong(PREF_LAST_SAMPLE, now).apply();
+            return;
+        }
+
+        double minutes = (now - lastSample) / 60000.0;
+        double sample = rowsChanged / minutes;
+        double rate = SMOOTHING * sample + (1 - SMOOTHING) * getChangeRate();
+
+        long interval = rate <= 0
+                ? MAX_INTERVAL_MS
+                : (long) (TARGET_CHANGES_PER_SYNC / rate * 60000);
+        interval = Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, interval));
+
+        String reason = describe(rowsChanged, rate, interval);
+        preferences.edit()
+                .putLong(PREF_LAST_SAMPLE, now)
+                .putFloat(PREF_CHANGE_RATE, (float) rate)
+                .putLong(PREF_INTERVAL, interval)
+                .putString(PREF_REASON, reason)
+                .apply();
+        android.util.Log.d(TAG, "⏲️ Sync interval " + reason);
+    }
+
+    private String describe(int rowsChanged, double rate, long interval) {
+        String bound = interval == MIN_INTERVAL_MS ? " (minimum)"
+                : interval == MAX_INTERVAL_MS ? " (maximum)" : "";
+        String trend = rowsChanged > 0 ? rowsChanged + " rows changed in the last sync" : "no changes in the last sync";
+        return String.format(Locale.US, "%ds%s: %s, ~%.2f changes/min", interval / 1000, bound, trend, rate);
+    }
+
+    // ===== STATE =====
+
+    public long getIntervalMs() {
+        return preferences.getLong(PREF_INTERVAL, INITIAL_INTERVAL_MS);
+    }
+
+    /**
+     * Why the interval is what it is, e.g. "10s (minimum): 12 rows changed in the last sync, ~8.40 changes/min"
+     */
+    public String getReason() {
+        return preferences.getString(PREF_REASON, "default - no syncs measured yet");
+    }
+
+    /**
+     * Smoothed remote changes per minute
+     */
+    public double getChangeRate() {
+        return preferences.getFloat(PREF_CHANGE_RATE, 0f);
+    }
+}
@@ -0,0 +1,162 @@
+package com.grocerylist.app.repository;
+
+import com.grocerylist.app.models.BatchResult;
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.Mutation;
+import com.grocerylist.app.models.PendingOperation;
+import com.grocerylist.app.utils.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.rxjava3.core.Completable;
+import retrofit2.HttpException;
+
+/**
+ * Push half of a sync cycle: uploads every row still marked dirty in bulk (api/batch)
+ * before the pull starts.
+ *
+ * The outbox normally delivers local writes and clears their dirty flag on success; this
+ * catches what it couldn't - operations it dropped as rejected, or an outbox lost with the
+ * process or wiped by clear(). Only dirty rows are read (indexed), so a cycle costs
+ * nothing extra when everything was delivered. Rows still in the outbox are left to it.
+ */
+class DirtyRowPusher {
+    private static final String TAG = "GrocerySync";
+    private static final int BATCH_SIZE = 100;
+
+    private final LocalDataSource localDataSource;
+    private final RemoteDataSource remoteDataSource;
+    private volatile boolean batchEndpointUnsupported;
+
+    DirtyRowPusher(LocalDataSource localDataSource, RemoteDataSource remoteDataSource) {
+        this.localDataSource = localDataSource;
+        this.remoteDataSource = remoteDataSource;
+    }
+
+    /**
+     * Blocking - call from a background thread. A failed request leaves its rows dirty
+     * for the next cycle; it never fails the sync.
+     *
+     * @return the number of rows the server acknowledged
+     */
+    int push() {
+        if (batchEndpointUnsupported) {
+            return 0;
+        }
+
+        List<GroceryList> lists = localDataSource.getDirtyLists();
+        List<GroceryItem> items = localDataSource.getDirtyItems();
+        if (lists.isEmpty() && items.isEmpty()) {
+            return 0;
+        }
+
+        // Upserted lists before their items, deleted lists after them
+        List<Object> rows = new ArrayList<>(lists.size() + items.size());
+        for (GroceryList list : lists) {
+            if (!list.getIsDeleted()) {
+                rows.add(list);
+            }
+        }
+        rows.addAll(items);
+        for (GroceryList list : lists) {
+            if (list.getIsDeleted()) {
+                rows.add(list);
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        int acknowledged = 0;
+        for (int start = 0; start < rows.size(); start += BATCH_SIZE) {
+            List<Object> batch = rows.subList(start, Math.min(start + BATCH_SIZE, rows.size()));
+            try {
+                acknowledged += pushBatch(batch);
+            } catch (Exception e) {
+                if (isBatchUnsupported(e)) {
+                    android.util.Log.w(TAG, "⚠️ Backend has no batch endpoint - dirty rows are left to the outbox");
+                    batchEndpointUnsupported = true;
+                } else {
+                    android.util.Log.w(TAG, "⚠️ Pushing dirty rows failed, retrying next sync: " + e.getMessage());
+                }
+                break;
+            }
+        }
+
+        android.util.Log.d(TAG, "⬆️ Pushed " + acknowledged + " of " + rows.size() + " dirty rows in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        return acknowledged;
+    }
+
+    private int pushBatch(List<Object> batch) {
+        List<Mutation> mutations = new ArrayList<>(batch.size());
+        for (Object row : batch) {
+            mutations.add(toMutation(row));
+        }
+
+        BatchResult result = remoteDataSource.applyMutations(mutations).blockingGet();
+        List<BatchResult.Status> statuses = result.getResults();
+        int answered = statuses != null ? Math.min(statuses.size(), batch.size()) : 0;
+
+        int acknowledged = 0;
+        List<Object> done = new ArrayList<>(answered);
+        for (int i = 0; i < answered; i++) {
+            BatchResult.Status status = statuses.get(i);
+            if (status.isSuccessful()) {
+                acknowledged++;
+            } else if (!isPermanentFailure(status.getCode())) {
+                continue; // Stays dirty, tried again next cycle
+            } else {
+                // Would be rejected forever - stop pushing it
+                android.util.Log.e(TAG, "❌ Server rejected dirty row " + status.getEntityId()
+                        + " (" + status.getCode() + "): " + status.getMessage());
+            }
+            done.add(batch.get(i));
+        }
+        // On the db-write thread, like every other local write
+        Completable.fromAction(() -> markClean(done))
+                .subscribeOn(AppExecutors.getInstance().diskWriteScheduler())
+                .blockingAwait();
+        return acknowledged;
+    }
+
+    private Mutation toMutation(Object row) {
+        if (row instanceof GroceryList) {
+            GroceryList list = (GroceryList) row;
+            return list.getIsDeleted()
+                    ? new Mutation(PendingOperation.TYPE_DELETE_LIST, list.getId())
+                    : Mutation.upsertList(list);
+        }
+        GroceryItem item = (GroceryItem) row;
+        return item.getIsDeleted()
+                ? new Mutation(PendingOperation.TYPE_DELETE_ITEM, item.getId())
+                : Mutation.upsertItem(item);
+    }
+
+    /**
+     * Clears the flag only if the row still holds the version that was pushed
+     */
+    private void markClean(List<Object> rows) {
+        for (Object row : rows) {
+            if (row instanceof GroceryList) {
+                GroceryList list = (GroceryList) row;
+                localDataSource.markListClean(list.getId(), list.getHlc());
+            } else {
+                GroceryItem item = (GroceryItem) row;
+                localDataSource.markItemClean(item.getId(), item.getHlc());
+            }
+        }
+    }
+
+    private boolean isPermanentFailure(int code) {
+        return code >= 400 && code < 500 && code != 408 && code != 429;
+    }
+
+    private boolean isBatchUnsupported(Exception e) {
+        if (!(e instanceof HttpException)) {
+            return false;
+        }
+        int code = ((HttpException) e).code();
+        return code == 404 || code == 405 || code == 501;
+    }
+}
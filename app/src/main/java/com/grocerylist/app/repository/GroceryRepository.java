@@ -6,36 +6,60 @@ import androidx.lifecycle.LiveData;
 import com.grocerylist.app.database.GroceryDatabase;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemFields;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.utils.AppExecutors;
+import com.grocerylist.app.utils.Constants;
+import com.grocerylist.app.utils.HybridLogicalClock;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 /**
  * Main repository coordinating local and remote data sources
- * Delegates work to LocalDataSource, RemoteDataSource, and SyncManager
+ * Delegates work to LocalDataSource, RemoteDataSource, and SyncCoordinator
  */
 public class GroceryRepository {
     private final LocalDataSource localDataSource;
     private final RemoteDataSource remoteDataSource;
+    private final SyncCoordinator syncCoordinator;
     private final SyncManager syncManager;
+    private final OutboxManager outboxManager;
+    private final HybridLogicalClock clock;
+    private final LiveUpdateManager liveUpdateManager;
+    private final AppExecutors executors;
     private final String currentUserId;
 
     public interface Callback<T> {
         void onSuccess(@SuppressWarnings("unused") T result);
         void onError(Exception error);
+
+        /**
+         * Percentage done, for long-running operations that can report it (paged sync)
+         */
+        default void onProgress(int percent) {
+        }
     }
 
     public GroceryRepository(Application application) {
         // Initialize data sources
         GroceryDatabase database = GroceryDatabase.getDatabase(application);
         this.localDataSource = new LocalDataSource(database.groceryDao());
-        this.remoteDataSource = new RemoteDataSource();
-        this.syncManager = new SyncManager(localDataSource, remoteDataSource, application);
+        this.remoteDataSource = new RemoteDataSource(application);
+        // Sync is shared by every screen - see SyncCoordinator
+        this.syncCoordinator = SyncCoordinator.getInstance(application);
+        this.syncManager = syncCoordinator.getSyncManager();
+        this.outboxManager = OutboxManager.getInstance(application);
+        this.clock = HybridLogicalClock.getInstance(application);
+        this.liveUpdateManager = LiveUpdateManager.getInstance(application);
+        this.executors = AppExecutors.getInstance();
 
         // Set user ID
-        this.currentUserId = "shared-user";
+        this.currentUserId = Constants.DEFAULT_USER_ID;
     }
 
     // ===== LOCAL DATA OPERATIONS (LiveData) =====
@@ -52,118 +76,178 @@ public class GroceryRepository {
         return localDataSource.getItemCountForList(listId);
     }
 
+    public LiveData<Integer> getPendingUploadCount() {
+        return outboxManager.getPendingCountLive();
+    }
+
+    /**
+     * Network calls avoided by collapsing redundant pending writes
+     */
+    public long getSavedUploadCount() {
+        return outboxManager.getCompactor().getSavedCalls();
+    }
+
     // ===== LIST OPERATIONS =====
 
     public void insertList(GroceryList list, Callback<Void> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
                 list.setUserId(currentUserId);
+                stamp(list);
                 localDataSource.insertList(list);
-                syncListToCloud(list);
+                syncListToCloud(list, true);
                 callback.onSuccess(null);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
+    }
+
+    public void updateList(GroceryList list, Callback<Void> callback) {
+        runWrite(callback, () -> {
+            try {
+                list.setUserId(currentUserId);
+                list.setUpdatedAt(System.currentTimeMillis());
+                stamp(list);
+                localDataSource.updateList(list);
+                syncListToCloud(list, false);
+                callback.onSuccess(null);
+            } catch (Exception e) {
+                callback.onError(e);
+            }
+        });
     }
 
     public void deleteList(String listId, Callback<Void> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
-                localDataSource.deleteList(listId, System.currentTimeMillis());
+                localDataSource.deleteList(listId, System.currentTimeMillis(), clock.now(), clock.getNodeId());
                 deleteListFromCloud(listId);
                 callback.onSuccess(null);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
     public void duplicateList(String originalListId, String newName, String category, Callback<String> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
-                String newListId = localDataSource.duplicateList(originalListId, newName, category, currentUserId);
+                String newListId = localDataSource.duplicateList(originalListId, newName, category, currentUserId,
+                        clock.now(), clock.getNodeId());
 
-                // Sync new list to cloud
+                // Sync new list and its copied items to cloud
                 GroceryList newList = localDataSource.getListById(newListId);
-                syncListToCloud(newList);
+                syncListToCloud(newList, true);
+                for (GroceryItem item : localDataSource.getItemsForListSync(newListId)) {
+                    syncItemToCloud(item, true);
+                }
 
                 callback.onSuccess(newListId);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
     // ===== ITEM OPERATIONS =====
 
     public void insertItem(GroceryItem item, Callback<Void> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
+                stamp(item);
                 localDataSource.insertItem(item);
-                syncItemToCloud(item);
+                syncItemToCloud(item, true);
                 callback.onSuccess(null);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
-    public void updateItem(GroceryItem item, Callback<Void> callback) {
-        new Thread(() -> {
+    /**
+     * Writes and uploads only the fields the user changed between the two snapshots, so a
+     * change to any other field that was merged in meanwhile (e.g. from another device) survives
+     *
+     * @param before the item as it was when the edit started
+     * @param after  the same item with the user's edit applied
+     */
+    public void updateItem(GroceryItem before, GroceryItem after, Callback<Void> callback) {
+        updateItemFields(after, ItemFields.diff(before, after), callback);
+    }
+
+    public void setItemCompleted(GroceryItem item, boolean completed, Callback<Void> callback) {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put(ItemFields.COMPLETED, completed);
+        updateItemFields(item, changes, callback);
+    }
+
+    private void updateItemFields(GroceryItem item, Map<String, Object> changes, Callback<Void> callback) {
+        runWrite(callback, () -> {
             try {
-                item.setUpdatedAt(System.currentTimeMillis());
-                localDataSource.updateItem(item);
-                syncItemToCloud(item);
+                // No patch when the row is gone or tombstoned: the edit is dropped so the delete wins
+                ItemPatch patch = localDataSource.updateItemFields(item.getId(), changes, clock.now(), clock.getNodeId(), System.currentTimeMillis());
+                if (patch != null) {
+                    patchItemInCloud(item.getId(), patch);
+                }
                 callback.onSuccess(null);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
     public void deleteItem(String itemId, Callback<Void> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
-                localDataSource.deleteItem(itemId, System.currentTimeMillis());
+                localDataSource.deleteItem(itemId, System.currentTimeMillis(), clock.now(), clock.getNodeId());
                 deleteItemFromCloud(itemId);
                 callback.onSuccess(null);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
     public void clearCompletedItems(String listId, Callback<Void> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
-                localDataSource.clearCompletedItems(listId);
+                localDataSource.clearCompletedItems(listId, System.currentTimeMillis(), clock.now(), clock.getNodeId());
                 clearCompletedItemsFromCloud(listId);
                 callback.onSuccess(null);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
     // ===== SYNC OPERATIONS =====
 
     public void smartSync(Callback<Void> callback) {
-        syncManager.smartSync(currentUserId, new SyncManager.OnSyncListener() {
-            @Override
-            public void onSuccess() {
-                callback.onSuccess(null);
-            }
-
-            @Override
-            public void onError(Exception error) {
-                callback.onError(error);
-            }
-        });
+        syncCoordinator.smartSync(currentUserId, toSyncListener(callback));
     }
 
     public void forceFullSync(Callback<Void> callback) {
-        syncManager.forceFullSync(currentUserId, new SyncManager.OnSyncListener() {
+        syncCoordinator.forceFullSync(currentUserId, toSyncListener(callback));
+    }
+
+    public void syncList(String listId, Callback<Void> callback) {
+        syncCoordinator.syncList(currentUserId, listId, toSyncListener(callback));
+    }
+
+    /**
+     * Keeps the live change stream open until the matching stopLiveUpdates()
+     */
+    public void startLiveUpdates() {
+        liveUpdateManager.acquire(currentUserId);
+    }
+
+    public void stopLiveUpdates() {
+        liveUpdateManager.release();
+    }
+
+    private SyncManager.OnSyncListener toSyncListener(Callback<Void> callback) {
+        return new SyncManager.OnSyncListener() {
             @Override
             public void onSuccess() {
                 callback.onSuccess(null);
@@ -173,7 +257,14 @@ public class GroceryRepository {
             public void onError(Exception error) {
                 callback.onError(error);
             }
-        });
+
+            @Override
+            public void onPageSynced(long rowsSynced, long totalRows) {
+                if (totalRows > 0) {
+                    callback.onProgress((int) Math.min(100, rowsSynced * 100 / totalRows));
+                }
+            }
+        };
     }
 
     public long getLastSyncTime() {
@@ -184,95 +275,117 @@ public class GroceryRepository {
         return syncManager.getLastSyncDuration();
     }
 
+    public long getSyncCount() {
+        return syncManager.getSyncCount();
+    }
+
+    public long getNoOpSyncCount() {
+        return syncManager.getNoOpSyncCount();
+    }
+
+    public long getSyncIntervalMs() {
+        return syncManager.getSyncIntervalMs();
+    }
+
+    public boolean isSyncDue() {
+        return syncManager.isSyncDue();
+    }
+
+    public String getSyncIntervalReason() {
+        return syncManager.getSyncIntervalReason();
+    }
+
+    // ===== BACKGROUND WORK =====
+
+    /**
+     * Runs a local write on the serial write thread, behind the writes made before it.
+     * A full queue is reported to the callback.
+     */
+    private void runWrite(Callback<?> callback, Runnable write) {
+        try {
+            executors.diskWrite().execute(write);
+        } catch (RejectedExecutionException e) {
+            callback.onError(e);
+        }
+    }
+
+    /**
+     * Queue depth, wait times and rejections of each background executor
+     */
+    public List<AppExecutors.Stats> getExecutorStats() {
+        return executors.getStats();
+    }
+
+    // ===== VERSIONING =====
+
+    // Every local write gets a fresh hybrid logical clock stamp; the merge orders by it
+
+    private void stamp(GroceryList list) {
+        list.setHlc(clock.now());
+        list.setNodeId(clock.getNodeId());
+    }
+
+    private void stamp(GroceryItem item) {
+        item.setHlc(clock.now());
+        item.setNodeId(clock.getNodeId());
+    }
+
     // ===== CLOUD SYNC HELPERS =====
 
-    private void syncListToCloud(GroceryList list) {
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.createList(list)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                result -> android.util.Log.d("GroceryApp", "✅ List synced: " + result.getName()),
-                                throwable -> android.util.Log.e("GroceryApp", "❌ Cloud sync failed", throwable)
-                        )
-        );
-    }
-
-    private void syncItemToCloud(GroceryItem item) {
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.createItem(item)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                result -> { /* Successfully synced */ },
-                                throwable -> { /* Handle sync error */ }
-                        )
-        );
+    // Uploads go through the durable outbox so they survive bad coverage and process death
+
+    private void syncListToCloud(GroceryList list, boolean isNew) {
+        outboxManager.enqueueUpsertList(list, isNew);
+    }
+
+    private void syncItemToCloud(GroceryItem item, boolean isNew) {
+        outboxManager.enqueueUpsertItem(item, isNew);
+    }
+
+    private void patchItemInCloud(String itemId, ItemPatch patch) {
+        outboxManager.enqueuePatchItem(itemId, patch);
     }
 
     private void deleteListFromCloud(String listId) {
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.deleteList(listId)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                result -> { /* Successfully deleted */ },
-                                throwable -> { /* Handle delete error */ }
-                        )
-        );
+        outboxManager.enqueueDeleteList(listId);
     }
 
     private void deleteItemFromCloud(String itemId) {
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.deleteItem(itemId)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                result -> { /* Successfully deleted */ },
-                                throwable -> { /* Handle delete error */ }
-                        )
-        );
+        outboxManager.enqueueDeleteItem(itemId);
     }
 
     private void clearCompletedItemsFromCloud(String listId) {
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.clearCompletedItems(listId)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                result -> { /* Successfully cleared */ },
-                                throwable -> { /* Handle error */ }
-                        )
-        );
+        outboxManager.enqueueClearCompleted(listId);
     }
 
     // ===== CLEAR ALL DATA =====
 
     public void clearAllData(Callback<Void> callback) {
-        new Thread(() -> {
+        runWrite(callback, () -> {
             try {
                 // Clear local database
                 localDataSource.deleteAllItems();
                 localDataSource.deleteAllLists();
+                outboxManager.clear();
+                syncManager.resetSyncCursor();
 
                 // Clear cloud database
                 clearCloudDatabase(callback);
             } catch (Exception e) {
                 callback.onError(e);
             }
-        }).start();
+        });
     }
 
     private void clearCloudDatabase(Callback<Void> callback) {
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.clearAllData(currentUserId, "CLEAR_GROCERY_DATA_2025")
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                result -> callback.onSuccess(null),
-                                throwable -> callback.onSuccess(null) // Still call success since local was cleared
-                        )
-        );
+        remoteDataSource.clearAllData(currentUserId, "CLEAR_GROCERY_DATA_2025")
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> callback.onSuccess(null),
+                        throwable -> callback.onSuccess(null), // Still call success since local was cleared
+                        remoteDataSource.getDisposables()
+                );
     }
 
     // ===== CLEANUP =====
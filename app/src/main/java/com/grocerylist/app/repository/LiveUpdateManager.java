@@ -0,0 +1,164 @@
+package com.grocerylist.app.repository;
+
+import android.content.Context;
+
+import com.grocerylist.app.api.ApiClient;
+import com.grocerylist.app.api.ChangeStreamClient;
+import com.grocerylist.app.database.GroceryDatabase;
+import com.grocerylist.app.models.ChangeEvent;
+import com.grocerylist.app.utils.AppExecutors;
+import com.grocerylist.app.utils.Constants;
+import com.grocerylist.app.utils.HybridLogicalClock;
+
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Keeps the live change stream open while any screen is visible and applies its events
+ * straight into Room through the same merges a sync uses, so other household members'
+ * edits show up within moments instead of at the next sync. The merges run on the db-write
+ * thread in the order the events arrived, never on the socket thread.
+ *
+ * Screens call acquire() in onStart and release() in onStop; the socket runs while the
+ * count is above zero. After a reconnect a delta sync picks up whatever was missed.
+ */
+public class LiveUpdateManager implements ChangeStreamClient.Listener {
+    private static final String TAG = "GroceryLive";
+    private static final long PING_INTERVAL_SECONDS = 30;
+
+    private static volatile LiveUpdateManager instance;
+
+    private final LocalDataSource localDataSource;
+    private final SyncCoordinator syncCoordinator;
+    private final HybridLogicalClock clock;
+    private final AppExecutors executors;
+    private final ChangeStreamClient streamClient;
+
+    private int holders;            // Guarded by this
+    private String userId;          // Guarded by this
+    private boolean connectedBefore; // Guarded by this
+
+    public static LiveUpdateManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LiveUpdateManager.class) {
+                if (instance == null) {
+                    instance = new LiveUpdateManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private LiveUpdateManager(Context context) {
+        this.localDataSource = new LocalDataSource(GroceryDatabase.getDatabase(context).groceryDao());
+        this.syncCoordinator = SyncCoordinator.getInstance(context);
+        this.clock = HybridLogicalClock.getInstance(context);
+        this.executors = AppExecutors.getInstance();
+
+        ApiClient apiClient = ApiClient.getInstance(context);
+        // Shares the connection pool; no read timeout on an idle socket, pings keep NATs open
+        OkHttpClient client = apiClient.getOkHttpClient().newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .build();
+        HttpUrl url = apiClient.getBaseUrl().resolve(Constants.CHANGE_STREAM_PATH);
+        this.streamClient = new ChangeStreamClient(client, url, this);
+    }
+
+    // ===== REF COUNTING =====
+
+    public synchronized void acquire(String userId) {
+        this.userId = userId;
+        if (holders++ == 0) {
+            streamClient.start();
+        }
+    }
+
+    public synchronized void release() {
+        if (holders == 0) {
+            return;
+        }
+        if (--holders == 0) {
+            streamClient.stop();
+        }
+    }
+
+    public ChangeStreamClient getStreamClient() {
+        return streamClient;
+    }
+
+    // ===== STREAM EVENTS (socket thread) =====
+
+    private final SyncManager.OnSyncListener catchUp = new SyncManager.OnSyncListener() {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onError(Exception error) {
+            android.util.Log.w(TAG, "⚠️ Catch-up sync failed: " + error.getMessage());
+        }
+    };
+
+    @Override
+    public void onConnected() {
+        String syncUserId;
+        boolean reconnected;
+        synchronized (this) {
+            syncUserId = userId;
+            reconnected = connectedBefore;
+            connectedBefore = true;
+        }
+
+        // Changes made while we were offline never reach the stream
+        if (reconnected) {
+            syncCoordinator.forceFullSync(syncUserId, catchUp);
+        } else {
+            syncCoordinator.smartSync(syncUserId, catchUp);
+        }
+    }
+
+    @Override
+    public void onEvent(ChangeEvent event) {
+        try {
+            executors.diskWrite().execute(() -> apply(event));
+        } catch (RejectedExecutionException e) {
+            // A sync fetches whatever this event carried
+            android.util.Log.w(TAG, "⚠️ Write queue full - dropped a live event, syncing instead");
+            String syncUserId;
+            synchronized (this) {
+                syncUserId = userId;
+            }
+            syncCoordinator.forceFullSync(syncUserId, catchUp);
+        }
+    }
+
+    // ===== MERGING (db-write thread) =====
+
+    private void apply(ChangeEvent event) {
+        switch (event.getType()) {
+            case ChangeEvent.TYPE_LIST:
+                if (event.getList() != null) {
+                    localDataSource.mergeListsFromCloud(Collections.singletonList(event.getList()));
+                }
+                break;
+            case ChangeEvent.TYPE_ITEM:
+                if (event.getItem() != null) {
+                    localDataSource.mergeItemsFromCloud(Collections.singletonList(event.getItem()));
+                }
+                break;
+            case ChangeEvent.TYPE_PATCH:
+                if (event.getPatch() != null) {
+                    localDataSource.mergeItemPatchesFromCloud(Collections.singletonList(event.getPatch()));
+                }
+                break;
+            default:
+                return; // Event type from a newer server
+        }
+        clock.observe(event.getHlc());
+    }
+}
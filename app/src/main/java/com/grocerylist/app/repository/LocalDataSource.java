@@ -3,15 +3,27 @@ package com.grocerylist.app.repository;
 import androidx.lifecycle.LiveData;
 
 import com.grocerylist.app.database.GroceryDao;
+import com.grocerylist.app.database.MergeResult;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.ListDigest;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Handles all local database operations (Room database)
  * Responsible for CRUD operations on the local SQLite database
+ *
+ * All entity writes go through the DAO's tracked upsert methods - never REPLACE, which would
+ * delete the old row first and cascade-delete a list's items. The tracked writes also keep
+ * each list's digest (see ListDigest) up to date.
+ *
+ * Every local write marks the row dirty until the server acknowledges it,
+ * so the sync cycle can push whatever the outbox failed to deliver.
  */
 public class LocalDataSource {
     private final GroceryDao groceryDao;
@@ -27,11 +39,20 @@ public class LocalDataSource {
     }
 
     public void insertList(GroceryList list) {
-        groceryDao.insertList(list);
+        list.setDirty(true);
+        groceryDao.saveList(list);
     }
 
-    public void deleteList(String listId, long timestamp) {
-        groceryDao.deleteList(listId, timestamp);
+    public void updateList(GroceryList list) {
+        list.setDirty(true);
+        groceryDao.saveList(list);
+    }
+
+    /**
+     * Tombstones the list and its items together, matching the server's cascade
+     */
+    public void deleteList(String listId, long timestamp, long hlc, String nodeId) {
+        groceryDao.tombstoneList(listId, timestamp, hlc, nodeId);
     }
 
     public GroceryList getListById(String listId) {
@@ -45,23 +66,37 @@ public class LocalDataSource {
     }
 
     public void insertItem(GroceryItem item) {
-        groceryDao.insertItem(item);
+        item.setDirty(true);
+        groceryDao.saveItem(item);
     }
 
     public void updateItem(GroceryItem item) {
-        groceryDao.updateItem(item);
+        item.setDirty(true);
+        groceryDao.saveItem(item);
+    }
+
+    /**
+     * Stores only the edited fields on the stored row.
+     * Returns the resulting patch, or null if nothing changed.
+     */
+    public ItemPatch updateItemFields(String itemId, Map<String, Object> changes, long hlc, String nodeId, long timestamp) {
+        return groceryDao.updateItemFields(itemId, changes, hlc, nodeId, timestamp);
     }
 
-    public void deleteItem(String itemId, long timestamp) {
-        groceryDao.deleteItem(itemId, timestamp);
+    public void deleteItem(String itemId, long timestamp, long hlc, String nodeId) {
+        groceryDao.tombstoneItem(itemId, timestamp, hlc, nodeId);
     }
 
     public GroceryItem getItemById(String itemId) {
         return groceryDao.getItemByIdSync(itemId);
     }
 
-    public void clearCompletedItems(String listId) {
-        groceryDao.clearCompletedItems(listId);
+    public List<GroceryItem> getItemsForListSync(String listId) {
+        return groceryDao.getItemsForListSync(listId);
+    }
+
+    public void clearCompletedItems(String listId, long timestamp, long hlc, String nodeId) {
+        groceryDao.tombstoneCompletedItems(listId, timestamp, hlc, nodeId);
     }
 
     // ===== ITEM COUNT OPERATIONS =====
@@ -78,11 +113,78 @@ public class LocalDataSource {
 
     public void deleteAllLists() {
         groceryDao.deleteAllLists();
+        groceryDao.deleteAllDigests();
+    }
+
+    // ===== CLOUD MERGE OPERATIONS =====
+
+    /**
+     * Applies cloud lists in a single transaction (one invalidation for grocery_lists)
+     */
+    public MergeResult mergeListsFromCloud(List<GroceryList> cloudLists) {
+        return groceryDao.mergeLists(cloudLists);
+    }
+
+    /**
+     * Applies cloud items in a single transaction (one invalidation for grocery_items)
+     */
+    public MergeResult mergeItemsFromCloud(List<GroceryItem> cloudItems) {
+        return groceryDao.mergeItems(cloudItems);
+    }
+
+    /**
+     * Applies field-level deltas from the cloud; returns the number of items changed
+     */
+    public int mergeItemPatchesFromCloud(List<ItemPatch> patches) {
+        return groceryDao.mergeItemPatches(patches);
+    }
+
+    // ===== DIRTY ROWS =====
+
+    public List<GroceryList> getDirtyLists() {
+        return groceryDao.getDirtyLists();
+    }
+
+    public List<GroceryItem> getDirtyItems() {
+        return groceryDao.getDirtyItems();
+    }
+
+    public void markListClean(String listId, long hlc) {
+        groceryDao.markListClean(listId, hlc);
+    }
+
+    public void markItemClean(String itemId, long hlc) {
+        groceryDao.markItemClean(itemId, hlc);
+    }
+
+    public int countDirtyRows() {
+        return groceryDao.countDirtyRows();
+    }
+
+    // ===== DIGESTS =====
+
+    /**
+     * Digest of every local list as listId -> hex, computing any that are missing first
+     */
+    public Map<String, String> getListDigests() {
+        for (String listId : groceryDao.getListIdsWithoutDigest()) {
+            groceryDao.recomputeDigest(listId);
+        }
+
+        Map<String, String> digests = new HashMap<>();
+        for (ListDigest digest : groceryDao.getAllDigests()) {
+            digests.put(digest.getListId(), digest.toHex());
+        }
+        return digests;
     }
 
     // ===== DUPLICATE LIST OPERATION =====
 
-    public String duplicateList(String originalListId, String newName, String category, String userId) {
+    /**
+     * The copy and all its items share one clock stamp - they are a single write
+     */
+    public String duplicateList(String originalListId, String newName, String category, String userId,
+                                long hlc, String nodeId) {
         String newListId = UUID.randomUUID().toString();
         List<GroceryItem> originalItems = groceryDao.getItemsForListSync(originalListId);
 
@@ -90,7 +192,10 @@ public class LocalDataSource {
         newList.setId(newListId);
         newList.setUserId(userId);
         newList.setCategory(category);
-        groceryDao.insertList(newList);
+        newList.setHlc(hlc);
+        newList.setNodeId(nodeId);
+        newList.setDirty(true);
+        groceryDao.saveList(newList);
 
         for (GroceryItem item : originalItems) {
             GroceryItem newItem = new GroceryItem(newListId, item.getName());
@@ -99,7 +204,10 @@ public class LocalDataSource {
             newItem.setNotes(item.getNotes());
             newItem.setCategory(item.getCategory());
             newItem.setPriority(item.getPriority());
-            groceryDao.insertItem(newItem);
+            newItem.setHlc(hlc);
+            newItem.setNodeId(nodeId);
+            newItem.setDirty(true);
+            groceryDao.saveItem(newItem);
         }
 
         return newListId;
@@ -0,0 +1,222 @@
+package com.grocerylist.app.repository;
+
+import com.google.gson.Gson;
+import com.grocerylist.app.database.OutboxDao;
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.ItemFields;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.PendingOperation;
+import com.grocerylist.app.utils.JsonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses redundant pending writes for the same entity before they reach the network.
+ *
+ * Rules, applied against operations that are not in flight right now:
+ * - upsert after upsert or patch: keep only the latest state
+ * - patch after patch: one patch with the union of the changed fields
+ * - patch after upsert: folded into the upsert's payload
+ * - upsert after delete (undo): the delete is dropped, the upsert restores the row
+ * - delete after upsert or patch: it is dropped; if it was the create, the delete is dropped too
+ * - repeated clear-completed for the same list: sent once
+ * The merged operation takes the queue position of the earliest one it replaces.
+ *
+ * Must be called inside the transaction that inserts the new operation.
+ */
+public class MutationCompactor {
+    private final OutboxDao outboxDao;
+    private final Gson gson = JsonUtils.GSON;
+
+    private final AtomicLong mergedUpdates = new AtomicLong();
+    private final AtomicLong cancelledPairs = new AtomicLong();
+    private final AtomicLong savedCalls = new AtomicLong();
+
+    public MutationCompactor(OutboxDao outboxDao) {
+        this.outboxDao = outboxDao;
+    }
+
+    /**
+     * Folds the new operation into the pending ones.
+     *
+     * @param operation   the operation about to be enqueued
+     * @param afterSeq    pending operations at or below this seq are already in flight and left alone
+     * @return the operation to insert, or null if nothing needs to be sent any more
+     */
+    public PendingOperation compact(PendingOperation operation, long afterSeq) {
+        List<PendingOperation> pending = outboxDao.getPendingForEntity(operation.getEntityId(), afterSeq);
+        if (pending.isEmpty()) {
+            return operation;
+        }
+
+        switch (operation.getType()) {
+            case PendingOperation.TYPE_UPSERT_LIST:
+            case PendingOperation.TYPE_UPSERT_ITEM:
+                return compactUpsert(operation, pending);
+            case PendingOperation.TYPE_PATCH_ITEM:
+                return compactPatch(operation, pending);
+            case PendingOperation.TYPE_DELETE_LIST:
+            case PendingOperation.TYPE_DELETE_ITEM:
+                return compactDelete(operation, pending);
+            case PendingOperation.TYPE_CLEAR_COMPLETED:
+                return compactClearCompleted(operation, pending);
+            default:
+                return operation;
+        }
+    }
+
+    private PendingOperation compactUpsert(PendingOperation upsert, List<PendingOperation> pending) {
+        boolean isCreate = upsert.isCreate();
+        List<PendingOperation> replaced = new ArrayList<>();
+        for (PendingOperation previous : pending) {
+            if (isUpsert(previous) || isDelete(previous)) {
+                // The new upsert carries the full latest state, so it supersedes both.
+                // A pending delete means the server already knows the entity.
+                isCreate = isDelete(previous) ? false : isCreate || previous.isCreate();
+                replaced.add(previous);
+            }
+        }
+
+        upsert.setCreate(isCreate);
+        return replace(replaced, upsert);
+    }
+
+    private PendingOperation compactPatch(PendingOperation patchOperation, List<PendingOperation> pending) {
+        ItemPatch patch = gson.fromJson(patchOperation.getPayload(), ItemPatch.class);
+        List<PendingOperation> replaced = new ArrayList<>();
+        for (PendingOperation previous : pending) {
+            if (PendingOperation.TYPE_PATCH_ITEM.equals(previous.getType())) {
+                ItemPatch earlier = gson.fromJson(previous.getPayload(), ItemPatch.class);
+                earlier.mergeLater(patch);
+                patch = earlier;
+            } else if (PendingOperation.TYPE_UPSERT_ITEM.equals(previous.getType())) {
+                // The server hasn't seen the pending state yet, so send it whole with the edit applied
+                GroceryItem item = gson.fromJson(previous.getPayload(), GroceryItem.class);
+                ItemFields.apply(item, patch);
+                PendingOperation upsert = new PendingOperation(PendingOperation.TYPE_UPSERT_ITEM, item.getId(), gson.toJson(item));
+                upsert.setCreate(previous.isCreate());
+                patchOperation = upsert;
+            } else {
+                continue;
+            }
+            replaced.add(previous);
+        }
+
+        if (PendingOperation.TYPE_PATCH_ITEM.equals(patchOperation.getType())) {
+            patchOperation.setPayload(gson.toJson(patch));
+        }
+        return replace(replaced, patchOperation);
+    }
+
+    /**
+     * Writes the merged operation into the slot of the earliest one it replaces and drops
+     * the others, so a pending create keeps its place ahead of everything enqueued after it
+     * (list create, item create, list rename must not send the item first).
+     * An item whose new state points at a list created after that slot goes to the tail
+     * instead - nothing but its own operations, all merged here, depends on an item.
+     *
+     * @return the operation still to insert, or null if it was written in place
+     */
+    private PendingOperation replace(List<PendingOperation> replaced, PendingOperation merged) {
+        if (replaced.isEmpty()) {
+            return merged;
+        }
+
+        PendingOperation slot = replaced.get(0);
+        boolean inPlace = !dependsOnLaterCreate(merged, slot.getSeq());
+        for (int i = inPlace ? 1 : 0; i < replaced.size(); i++) {
+            outboxDao.delete(replaced.get(i).getSeq());
+        }
+        mergedUpdates.addAndGet(replaced.size());
+        savedCalls.addAndGet(replaced.size());
+
+        if (!inPlace) {
+            return merged;
+        }
+        outboxDao.rewrite(slot.getSeq(), merged.getType(), merged.getPayload(), merged.isCreate());
+        return null;
+    }
+
+    private boolean dependsOnLaterCreate(PendingOperation operation, long slotSeq) {
+        if (!PendingOperation.TYPE_UPSERT_ITEM.equals(operation.getType())) {
+            return false;
+        }
+        String listId = gson.fromJson(operation.getPayload(), GroceryItem.class).getListId();
+        for (PendingOperation listOperation : outboxDao.getPendingForEntity(listId, slotSeq)) {
+            if (PendingOperation.TYPE_UPSERT_LIST.equals(listOperation.getType()) && listOperation.isCreate()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PendingOperation compactDelete(PendingOperation delete, List<PendingOperation> pending) {
+        boolean neverUploaded = false;
+        for (PendingOperation previous : pending) {
+            if (isUpsert(previous)) {
+                // A create that was already tried may have reached the server
+                neverUploaded |= previous.isCreate() && previous.getAttempts() == 0;
+                outboxDao.delete(previous.getSeq());
+                savedCalls.incrementAndGet();
+            } else if (isDelete(previous)) {
+                // Already being deleted - the new delete is redundant
+                savedCalls.incrementAndGet();
+                return null;
+            }
+        }
+
+        if (neverUploaded) {
+            // Created and deleted before the server ever saw it
+            cancelledPairs.incrementAndGet();
+            savedCalls.incrementAndGet();
+            return null;
+        }
+        return delete;
+    }
+
+    private PendingOperation compactClearCompleted(PendingOperation clear, List<PendingOperation> pending) {
+        for (PendingOperation previous : pending) {
+            if (PendingOperation.TYPE_CLEAR_COMPLETED.equals(previous.getType())) {
+                savedCalls.incrementAndGet();
+                return null;
+            }
+        }
+        return clear;
+    }
+
+    private boolean isUpsert(PendingOperation operation) {
+        return PendingOperation.TYPE_UPSERT_LIST.equals(operation.getType())
+                || PendingOperation.TYPE_UPSERT_ITEM.equals(operation.getType())
+                || PendingOperation.TYPE_PATCH_ITEM.equals(operation.getType());
+    }
+
+    private boolean isDelete(PendingOperation operation) {
+        return PendingOperation.TYPE_DELETE_LIST.equals(operation.getType())
+                || PendingOperation.TYPE_DELETE_ITEM.equals(operation.getType());
+    }
+
+    // ===== COUNTERS =====
+
+    /**
+     * Number of network calls that never had to be made
+     */
+    public long getSavedCalls() {
+        return savedCalls.get();
+    }
+
+    /**
+     * Updates folded into a later update of the same entity
+     */
+    public long getMergedUpdates() {
+        return mergedUpdates.get();
+    }
+
+    /**
+     * Create + delete pairs cancelled before upload
+     */
+    public long getCancelledPairs() {
+        return cancelledPairs.get();
+    }
+}
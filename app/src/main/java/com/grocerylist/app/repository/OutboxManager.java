@@ -0,0 +1,469 @@
+package com.grocerylist.app.repository;
+
+import android.content.Context;
+import androidx.lifecycle.LiveData;
+
+import com.google.gson.Gson;
+import com.grocerylist.app.database.GroceryDao;
+import com.grocerylist.app.database.GroceryDatabase;
+import com.grocerylist.app.database.OutboxDao;
+import com.grocerylist.app.models.BatchResult;
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.Mutation;
+import com.grocerylist.app.models.PendingOperation;
+import com.grocerylist.app.utils.JsonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit2.HttpException;
+
+/**
+ * Durable outbox for local mutations.
+ *
+ * Every local write records a PendingOperation in Room before anything touches the network.
+ * A single drainer thread uploads them strictly in order, coalescing whatever arrives within
+ * a short window (up to MAX_BATCH_SIZE) into one api/batch request; a failed upload is retried
+ * with exponential backoff and blocks the ones behind it, so the server sees edits
+ * in the same order they were made. Redundant writes to the same entity are collapsed
+ * by MutationCompactor before they are stored. Pending rows survive process death and are
+ * picked up again the next time the outbox is created, or by SyncWorker if the app
+ * is not opened again before then.
+ */
+public class OutboxManager {
+    private static final String TAG = "GroceryOutbox";
+    private static final long BASE_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000; // 5 minutes
+    private static final long COALESCE_WINDOW_MS = 300;
+    private static final int MAX_BATCH_SIZE = 50;
+
+    private static volatile OutboxManager instance;
+
+    private final Context context;
+    private final GroceryDatabase database;
+    private final OutboxDao outboxDao;
+    private final MutationCompactor compactor;
+    private final RemoteDataSource remoteDataSource;
+    private final Gson gson = JsonUtils.GSON;
+    private final ScheduledExecutorService drainExecutor;
+    private ScheduledFuture<?> scheduledDrain; // Guarded by this
+    private volatile boolean batchEndpointUnsupported;
+    // Set once the background sync was requested; cleared by each drain pass
+    private final AtomicBoolean workerRequested = new AtomicBoolean();
+
+    // Operations up to this seq are being uploaded right now and must not be compacted
+    private final Object compactionLock = new Object();
+    private long inFlightMaxSeq; // Guarded by compactionLock
+
+    public static OutboxManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OutboxManager.class) {
+                if (instance == null) {
+                    instance = new OutboxManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private OutboxManager(Context context) {
+        this.context = context;
+        this.database = GroceryDatabase.getDatabase(context);
+        this.outboxDao = database.outboxDao();
+        this.compactor = new MutationCompactor(outboxDao);
+        this.remoteDataSource = new RemoteDataSource(context);
+        this.drainExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "grocery-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Upload anything left over from a previous process
+        scheduleDrain(0);
+    }
+
+    // ===== ENQUEUE (call from a background thread) =====
+
+    public void enqueueUpsertList(GroceryList list, boolean isNew) {
+        PendingOperation operation = new PendingOperation(PendingOperation.TYPE_UPSERT_LIST, list.getId(), gson.toJson(list));
+        operation.setCreate(isNew);
+        enqueue(operation);
+    }
+
+    public void enqueueDeleteList(String listId) {
+        enqueue(new PendingOperation(PendingOperation.TYPE_DELETE_LIST, listId, null));
+    }
+
+    public void enqueueUpsertItem(GroceryItem item, boolean isNew) {
+        PendingOperation operation = new PendingOperation(PendingOperation.TYPE_UPSERT_ITEM, item.getId(), gson.toJson(item));
+        operation.setCreate(isNew);
+        enqueue(operation);
+    }
+
+    /**
+     * Uploads only the changed fields of an existing item
+     */
+    public void enqueuePatchItem(String itemId, ItemPatch patch) {
+        enqueue(new PendingOperation(PendingOperation.TYPE_PATCH_ITEM, itemId, gson.toJson(patch)));
+    }
+
+    public void enqueueDeleteItem(String itemId) {
+        enqueue(new PendingOperation(PendingOperation.TYPE_DELETE_ITEM, itemId, null));
+    }
+
+    public void enqueueClearCompleted(String listId) {
+        enqueue(new PendingOperation(PendingOperation.TYPE_CLEAR_COMPLETED, listId, null));
+    }
+
+    /**
+     * Persists the operation, then lets the coalescing window collect more before
+     * uploading - unless a full batch is already waiting.
+     */
+    private void enqueue(PendingOperation operation) {
+        synchronized (compactionLock) {
+            database.runInTransaction(() -> {
+                PendingOperation compacted = compactor.compact(operation, inFlightMaxSeq);
+                if (compacted != null) {
+                    outboxDao.insert(compacted);
+                }
+            });
+        }
+        scheduleDrain(outboxDao.getPendingCount() >= MAX_BATCH_SIZE ? 0 : COALESCE_WINDOW_MS);
+        // Finishes the upload in the background if the process dies first.
+        // Once per drain pass is enough - the edits in between share the request.
+        if (workerRequested.compareAndSet(false, true)) {
+            SyncWorker.enqueue(context);
+        }
+    }
+
+    // ===== STATUS =====
+
+    public LiveData<Integer> getPendingCountLive() {
+        return outboxDao.getPendingCountLive();
+    }
+
+    public int getPendingCount() {
+        return outboxDao.getPendingCount();
+    }
+
+    public MutationCompactor getCompactor() {
+        return compactor;
+    }
+
+    /**
+     * Drops every pending upload, e.g. after all data has been cleared
+     */
+    public void clear() {
+        outboxDao.deleteAll();
+    }
+
+    /**
+     * Starts a drain pass now, e.g. when connectivity comes back.
+     * Operations still inside their backoff window keep waiting.
+     */
+    public void drainNow() {
+        scheduleDrain(0);
+    }
+
+    /**
+     * Runs a drain pass on the outbox thread and waits for it, for callers that
+     * must not finish before the uploads were tried (SyncWorker).
+     *
+     * @return true if nothing is left to upload
+     */
+    public boolean drainAndWait(long timeoutMs) throws Exception {
+        drainExecutor.submit(this::drain).get(timeoutMs, TimeUnit.MILLISECONDS);
+        return outboxDao.getPendingCount() == 0;
+    }
+
+    // ===== DRAINER =====
+
+    private synchronized void scheduleDrain(long delayMs) {
+        if (scheduledDrain != null && !scheduledDrain.isDone()) {
+            if (scheduledDrain.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+                return; // An earlier drain is already scheduled
+            }
+            scheduledDrain.cancel(false);
+        }
+        scheduledDrain = drainExecutor.schedule(this::drain, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Uploads pending operations in order until the queue is empty or one fails.
+     * Runs on the single outbox thread only.
+     */
+    private void drain() {
+        synchronized (this) {
+            // Any enqueue from here on must schedule a fresh pass behind this one
+            scheduledDrain = null;
+        }
+        // ...and request a background sync again: a worker run may already be past its drain
+        workerRequested.set(false);
+
+        List<PendingOperation> batch;
+        while (!(batch = takeBatch()).isEmpty()) {
+            // A failed head blocks everything behind it, so only the head can be backing off
+            long waitMs = batch.get(0).getNextAttemptAt() - System.currentTimeMillis();
+            if (waitMs > 0) {
+                // Nothing is sent while it waits - leave the batch open to compaction
+                releaseBatch();
+                scheduleDrain(waitMs);
+                return;
+            }
+
+            boolean drained;
+            try {
+                drained = batch.size() == 1 || batchEndpointUnsupported
+                        ? uploadOneByOne(batch)
+                        : uploadBatch(batch);
+            } finally {
+                releaseBatch();
+            }
+            if (!drained) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next batch and marks it as in flight, so compaction stops touching it
+     */
+    private List<PendingOperation> takeBatch() {
+        synchronized (compactionLock) {
+            List<PendingOperation> batch = outboxDao.getOldest(MAX_BATCH_SIZE);
+            if (!batch.isEmpty()) {
+                inFlightMaxSeq = batch.get(batch.size() - 1).getSeq();
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Once a batch has been answered nothing is in flight, so operations left behind
+     * to back off can be compacted again
+     */
+    private void releaseBatch() {
+        synchronized (compactionLock) {
+            inFlightMaxSeq = 0;
+        }
+    }
+
+    /**
+     * Sends the whole batch as one api/batch request.
+     * Returns false if draining has to stop and wait for a retry.
+     */
+    private boolean uploadBatch(List<PendingOperation> batch) {
+        BatchResult result;
+        try {
+            result = remoteDataSource.applyMutations(toMutations(batch)).blockingGet();
+        } catch (Exception e) {
+            if (isBatchUnsupported(e)) {
+                android.util.Log.w(TAG, "⚠️ Backend has no batch endpoint - uploading one by one");
+                batchEndpointUnsupported = true;
+                return uploadOneByOne(batch);
+            }
+            if (isPermanentFailure(e)) {
+                // The request as a whole was refused, which says nothing about the head operation.
+                // Sent one by one, each operation is judged on its own response.
+                android.util.Log.w(TAG, "⚠️ Batch request refused (" + e.getMessage() + ") - uploading it one by one");
+                return uploadOneByOne(batch);
+            }
+            return handleFailure(batch.get(0), e);
+        }
+
+        List<BatchResult.Status> statuses = result.getResults();
+        int answered = statuses != null ? Math.min(statuses.size(), batch.size()) : 0;
+        for (int i = 0; i < answered; i++) {
+            PendingOperation operation = batch.get(i);
+            BatchResult.Status status = statuses.get(i);
+            if (status.isSuccessful()) {
+                outboxDao.delete(operation.getSeq());
+                acknowledge(operation);
+            } else if (!handleFailure(operation, new BatchMutationException(status))) {
+                return false;
+            }
+        }
+
+        android.util.Log.d(TAG, "✅ Uploaded " + answered + " operations in one request");
+        if (answered < batch.size()) {
+            // The server stopped early; retry from the first unanswered operation
+            return handleFailure(batch.get(answered),
+                    new IllegalStateException("Batch response covered " + answered + " of " + batch.size()));
+        }
+        return true;
+    }
+
+    private boolean uploadOneByOne(List<PendingOperation> batch) {
+        for (PendingOperation operation : batch) {
+            try {
+                upload(operation);
+                outboxDao.delete(operation.getSeq());
+                acknowledge(operation);
+            } catch (Exception e) {
+                if (!handleFailure(operation, e)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The server has this write now, so the sync cycle no longer has to push the row.
+     * Only the uploaded version is cleared - a newer local edit stays dirty.
+     */
+    private void acknowledge(PendingOperation operation) {
+        GroceryDao groceryDao = database.groceryDao();
+        switch (operation.getType()) {
+            case PendingOperation.TYPE_UPSERT_LIST:
+                groceryDao.markListClean(operation.getEntityId(), gson.fromJson(operation.getPayload(), GroceryList.class).getHlc());
+                break;
+            case PendingOperation.TYPE_UPSERT_ITEM:
+                groceryDao.markItemClean(operation.getEntityId(), gson.fromJson(operation.getPayload(), GroceryItem.class).getHlc());
+                break;
+            case PendingOperation.TYPE_PATCH_ITEM:
+                groceryDao.markItemClean(operation.getEntityId(), gson.fromJson(operation.getPayload(), ItemPatch.class).getHlc());
+                break;
+            case PendingOperation.TYPE_DELETE_LIST:
+                // The server cascades the delete to the list's items
+                groceryDao.markListTombstoneClean(operation.getEntityId());
+                groceryDao.markItemTombstonesCleanForList(operation.getEntityId());
+                break;
+            case PendingOperation.TYPE_DELETE_ITEM:
+                groceryDao.markItemTombstoneClean(operation.getEntityId());
+                break;
+            case PendingOperation.TYPE_CLEAR_COMPLETED:
+                groceryDao.markItemTombstonesCleanForList(operation.getEntityId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Drops permanently rejected operations and schedules a retry for everything else.
+     * Returns true if draining can carry on with the next operation.
+     */
+    private boolean handleFailure(PendingOperation operation, Exception e) {
+        if (isPermanentFailure(e)) {
+            // The server will never accept this one - don't let it block the queue
+            android.util.Log.e(TAG, "❌ Dropping rejected " + operation.getType() + " for " + operation.getEntityId(), e);
+            outboxDao.delete(operation.getSeq());
+            return true;
+        }
+
+        int attempts = operation.getAttempts() + 1;
+        long backoff = computeBackoff(attempts);
+        outboxDao.scheduleRetry(operation.getSeq(), attempts, System.currentTimeMillis() + backoff);
+        android.util.Log.w(TAG, "⚠️ Upload of " + operation.getType() + " failed (attempt " + attempts +
+                "), retrying in " + backoff + "ms: " + e.getMessage());
+        scheduleDrain(backoff);
+        return false;
+    }
+
+    private List<Mutation> toMutations(List<PendingOperation> batch) {
+        List<Mutation> mutations = new ArrayList<>(batch.size());
+        for (PendingOperation operation : batch) {
+            switch (operation.getType()) {
+                case PendingOperation.TYPE_UPSERT_LIST:
+                    mutations.add(Mutation.upsertList(gson.fromJson(operation.getPayload(), GroceryList.class)));
+                    break;
+                case PendingOperation.TYPE_UPSERT_ITEM:
+                    mutations.add(Mutation.upsertItem(gson.fromJson(operation.getPayload(), GroceryItem.class)));
+                    break;
+                case PendingOperation.TYPE_PATCH_ITEM:
+                    mutations.add(Mutation.patchItem(operation.getEntityId(), gson.fromJson(operation.getPayload(), ItemPatch.class)));
+                    break;
+                default:
+                    mutations.add(new Mutation(operation.getType(), operation.getEntityId()));
+                    break;
+            }
+        }
+        return mutations;
+    }
+
+    private void upload(PendingOperation operation) {
+        switch (operation.getType()) {
+            case PendingOperation.TYPE_UPSERT_LIST:
+                remoteDataSource.createList(gson.fromJson(operation.getPayload(), GroceryList.class)).blockingGet();
+                break;
+            case PendingOperation.TYPE_DELETE_LIST:
+                remoteDataSource.deleteList(operation.getEntityId()).blockingAwait();
+                break;
+            case PendingOperation.TYPE_UPSERT_ITEM:
+                remoteDataSource.createItem(gson.fromJson(operation.getPayload(), GroceryItem.class)).blockingGet();
+                break;
+            case PendingOperation.TYPE_PATCH_ITEM:
+                remoteDataSource.patchItem(operation.getEntityId(), gson.fromJson(operation.getPayload(), ItemPatch.class)).blockingAwait();
+                break;
+            case PendingOperation.TYPE_DELETE_ITEM:
+                remoteDataSource.deleteItem(operation.getEntityId()).blockingAwait();
+                break;
+            case PendingOperation.TYPE_CLEAR_COMPLETED:
+                remoteDataSource.clearCompletedItems(operation.getEntityId()).blockingAwait();
+                break;
+            default:
+                throw new UnknownOperationException(operation.getType());
+        }
+    }
+
+    private long computeBackoff(int attempts) {
+        long backoff = BASE_BACKOFF_MS << Math.min(attempts - 1, 20);
+        return Math.min(backoff, MAX_BACKOFF_MS);
+    }
+
+    /**
+     * 4xx responses (other than timeout / rate limiting) mean the request itself is bad.
+     * 401 is about the session rather than the operation, so it is retried too.
+     * An operation type this version doesn't know can never be sent either.
+     */
+    private boolean isPermanentFailure(Exception e) {
+        int code;
+        if (e instanceof UnknownOperationException) {
+            return true;
+        } else if (e instanceof HttpException) {
+            code = ((HttpException) e).code();
+        } else if (e instanceof BatchMutationException) {
+            code = ((BatchMutationException) e).code;
+        } else {
+            return false;
+        }
+        return code >= 400 && code < 500 && code != 401 && code != 408 && code != 429;
+    }
+
+    private boolean isBatchUnsupported(Exception e) {
+        if (!(e instanceof HttpException)) {
+            return false;
+        }
+        int code = ((HttpException) e).code();
+        return code == 404 || code == 405 || code == 501;
+    }
+
+    /**
+     * Pending operation of a type this version can't upload, e.g. written by a newer build
+     */
+    private static class UnknownOperationException extends IllegalStateException {
+        UnknownOperationException(String type) {
+            super("Unknown outbox operation: " + type);
+        }
+    }
+
+    /**
+     * Failure of a single mutation inside an otherwise successful batch response
+     */
+    private static class BatchMutationException extends Exception {
+        final int code;
+
+        BatchMutationException(BatchResult.Status status) {
+            super("HTTP " + status.getCode() + (status.getMessage() != null ? ": " + status.getMessage() : ""));
+            this.code = status.getCode();
+        }
+    }
+}
@@ -1,84 +1,162 @@
 package com.grocerylist.app.repository;
 
+import android.content.Context;
+
+import com.grocerylist.app.api.ApiClient;
+import com.grocerylist.app.api.CircuitBreaker;
 import com.grocerylist.app.api.GroceryApiService;
+import com.grocerylist.app.api.LatencyTracker;
+import com.grocerylist.app.api.Resilience;
+import com.grocerylist.app.models.BatchResult;
+import com.grocerylist.app.models.DigestRequest;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
-import com.grocerylist.app.models.SyncData;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.Mutation;
 import com.grocerylist.app.utils.Constants;
 
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
-import okhttp3.OkHttpClient;
-import retrofit2.Retrofit;
-import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory;
-import retrofit2.converter.gson.GsonConverterFactory;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
 
-import java.util.concurrent.TimeUnit;
+import java.util.List;
 
 /**
  * Handles all remote API operations (Backend communication)
  * Responsible for network calls to the Spring Boot backend
+ *
+ * Every call goes through the shared {@link Resilience} policy: idempotent calls are
+ * retried with backoff, and all calls fail fast while the circuit breaker is open.
+ * Each attempt gets a timeout derived from observed latency, and sync requests
+ * are hedged once they run past the observed p95.
  */
 public class RemoteDataSource {
     private final GroceryApiService apiService;
+    private final Resilience resilience;
+    private final LatencyTracker syncStreamLatency;
+    private final LatencyTracker mutationLatency;
     private final CompositeDisposable disposables;
-    private static final int TIMEOUT_SECONDS = 60;
 
-    public RemoteDataSource() {
+    public RemoteDataSource(Context context) {
         this.disposables = new CompositeDisposable();
+        ApiClient apiClient = ApiClient.getInstance(context);
+        this.apiService = apiClient.getApiService();
+        this.resilience = apiClient.getResilience();
+        this.syncStreamLatency = apiClient.getSyncStreamLatency();
+        this.mutationLatency = apiClient.getMutationLatency();
+    }
 
-        // Create OkHttpClient with longer timeouts for cold starts
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .build();
+    // ===== SYNC OPERATIONS =====
 
-        // Initialize Retrofit
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(Constants.BASE_URL)
-                .client(okHttpClient)
-                .addConverterFactory(GsonConverterFactory.create())
-                .addCallAdapterFactory(RxJava3CallAdapterFactory.create())
-                .build();
+    /**
+     * @param etag ETag of the last applied sync, or null. The server answers 304 if nothing changed.
+     */
+    public Single<Response<ResponseBody>> getAllDataStream(String userId, String etag) {
+        return hedgedSync(apiService.getAllDataStream(userId, etag), syncStreamLatency);
+    }
 
-        this.apiService = retrofit.create(GroceryApiService.class);
+    public Single<Response<ResponseBody>> getChangesStream(String userId, String cursor, String etag) {
+        return hedgedSync(apiService.getChangesStream(userId, cursor, etag), syncStreamLatency);
     }
 
-    // ===== SYNC OPERATIONS =====
+    public Single<Response<ResponseBody>> getSyncPage(String userId, String pageToken, int pageSize) {
+        return hedgedSync(apiService.getSyncPage(userId, pageToken, pageSize), syncStreamLatency);
+    }
 
-    public Single<SyncData> getAllData(String userId) {
-        return apiService.getAllData(userId);
+    public Single<Response<ResponseBody>> getListSync(String listId, String userId) {
+        return hedgedSync(apiService.getListSync(listId, userId), syncStreamLatency);
+    }
+
+    public Single<Response<ResponseBody>> syncByDigest(DigestRequest request) {
+        return hedgedSync(apiService.syncByDigest(request), syncStreamLatency);
     }
 
     // ===== LIST OPERATIONS =====
 
+    /**
+     * Not retried here - the outbox owns retries for writes
+     */
     public Single<GroceryList> createList(GroceryList list) {
-        return apiService.createList(list);
+        return apiService.createList(list)
+                .compose(mutationLatency.adaptiveTimeout())
+                .compose(resilience.nonIdempotent());
     }
 
-    public Single<Void> deleteList(String listId) {
-        return apiService.deleteList(listId);
+    public Completable deleteList(String listId) {
+        return timedMutation(apiService.deleteList(listId));
     }
 
     // ===== ITEM OPERATIONS =====
 
     public Single<GroceryItem> createItem(GroceryItem item) {
-        return apiService.createItem(item);
+        return apiService.createItem(item)
+                .compose(mutationLatency.adaptiveTimeout())
+                .compose(resilience.nonIdempotent());
+    }
+
+    // Per-field stamps make a patch safe to apply twice, so it may be retried like a delete
+    public Completable patchItem(String itemId, ItemPatch patch) {
+        return timedMutation(apiService.patchItem(itemId, patch));
+    }
+
+    public Completable deleteItem(String itemId) {
+        return timedMutation(apiService.deleteItem(itemId));
     }
 
-    public Single<Void> deleteItem(String itemId) {
-        return apiService.deleteItem(itemId);
+    public Completable clearCompletedItems(String listId) {
+        return timedMutation(apiService.clearCompletedItems(listId));
     }
 
-    public Single<Void> clearCompletedItems(String listId) {
-        return apiService.clearCompletedItems(listId);
+    // ===== BATCH OPERATIONS =====
+
+    public Single<BatchResult> applyMutations(List<Mutation> mutations) {
+        return apiService.applyMutations(mutations)
+                .compose(mutationLatency.adaptiveTimeout())
+                .compose(resilience.nonIdempotent());
     }
 
     // ===== ADMIN OPERATIONS =====
 
     public Single<String> clearAllData(String userId, String confirmToken) {
-        return apiService.clearAllData(userId, confirmToken);
+        return apiService.clearAllData(userId, confirmToken).compose(resilience.nonIdempotent());
+    }
+
+    // ===== POLICY =====
+
+    /**
+     * Timeout per attempt, hedge within an attempt, retry around both.
+     * Streaming calls use their own tracker: they only wait for the headers.
+     */
+    private <T> Single<T> hedgedSync(Single<T> request, LatencyTracker latency) {
+        Single<T> attempt = request.compose(latency.adaptiveTimeout());
+        if (Constants.HEDGE_SYNC_REQUESTS) {
+            attempt = latency.hedged(attempt);
+        }
+        return attempt.compose(resilience.idempotent());
+    }
+
+    private Completable timedMutation(Completable request) {
+        return request.toSingleDefault(Boolean.TRUE)
+                .compose(mutationLatency.adaptiveTimeout())
+                .ignoreElement()
+                .compose(resilience.idempotentCompletable());
+    }
+
+    // ===== HEALTH =====
+
+    public Observable<CircuitBreaker.State> observeBreakerState() {
+        return resilience.observeBreakerState();
+    }
+
+    public Observable<Integer> observeRetryCount() {
+        return resilience.observeRetryCount();
+    }
+
+    public LatencyTracker getSyncStreamLatency() {
+        return syncStreamLatency;
     }
 
     // ===== CLEANUP =====
@@ -87,6 +165,10 @@ public class RemoteDataSource {
         disposables.dispose();
     }
 
+    /**
+     * Subscribe with subscribe(onSuccess, onError, getDisposables()) so a call leaves
+     * the container once it finishes; adding it by hand keeps it here until cleanup()
+     */
     public CompositeDisposable getDisposables() {
         return disposables;
     }
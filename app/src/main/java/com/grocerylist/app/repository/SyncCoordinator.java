@@ -0,0 +1,250 @@
+package com.grocerylist.app.repository;
+
+import android.content.Context;
+
+import com.grocerylist.app.database.GroceryDatabase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide single-flight sync.
+ *
+ * Every screen asks this coordinator instead of running its own SyncManager, so at most one
+ * sync is in flight at a time:
+ * - a request that arrives mid-sync joins it and gets the same result
+ * - a forced request that arrives mid-sync chains one follow-up sync, since the running one
+ *   may have started before the change it wants to see; further forced requests join that follow-up
+ * Progress and results are delivered to every caller that joined.
+ *
+ * List-scoped syncs are small and run next to the account-wide one; concurrent requests
+ * for the same list share one fetch. If the backend can't sync the list, it falls back to
+ * a smart sync through the same single flight.
+ */
+public class SyncCoordinator {
+    private static final String TAG = "GrocerySync";
+
+    private static volatile SyncCoordinator instance;
+
+    private final SyncManager syncManager;
+
+    private final Object lock = new Object();
+    private List<SyncManager.OnSyncListener> currentWaiters;  // Guarded by lock, null when idle
+    private List<SyncManager.OnSyncListener> followUpWaiters; // Guarded by lock, null when none chained
+    private String followUpUserId;                            // Guarded by lock
+    private final Map<String, List<SyncManager.OnSyncListener>> listWaiters = new HashMap<>(); // Guarded by lock
+    private long joinedRequests;                              // Guarded by lock
+    private long chainedFollowUps;                            // Guarded by lock
+
+    public static SyncCoordinator getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncCoordinator.class) {
+                if (instance == null) {
+                    instance = new SyncCoordinator(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private SyncCoordinator(Context context) {
+        GroceryDatabase database = GroceryDatabase.getDatabase(context);
+        this.syncManager = new SyncManager(
+                new LocalDataSource(database.groceryDao()),
+                new RemoteDataSource(context),
+                context);
+    }
+
+    // ===== REQUESTS =====
+
+    public void smartSync(String userId, SyncManager.OnSyncListener listener) {
+        requestSync(userId, false, listener);
+    }
+
+    public void forceFullSync(String userId, SyncManager.OnSyncListener listener) {
+        requestSync(userId, true, listener);
+    }
+
+    public void syncList(String userId, String listId, SyncManager.OnSyncListener listener) {
+        synchronized (lock) {
+            List<SyncManager.OnSyncListener> waiters = listWaiters.get(listId);
+            if (waiters != null) {
+                joinedRequests++;
+                waiters.add(listener);
+                return;
+            }
+            waiters = new ArrayList<>();
+            waiters.add(listener);
+            listWaiters.put(listId, waiters);
+        }
+
+        syncManager.syncList(userId, listId, new SyncManager.OnSyncListener() {
+            @Override
+            public void onSuccess() {
+                finishList(listId, null);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (!SyncManager.isNotFound(error)) {
+                    finishList(listId, error);
+                    return;
+                }
+                // Unknown list or no list endpoint - a smart sync covers it. Goes through
+                // requestSync so it joins, rather than races, an account-wide sync.
+                android.util.Log.d(TAG, "↩️ List " + listId + " not found - falling back to smart sync");
+                requestSync(userId, false, new SyncManager.OnSyncListener() {
+                    @Override
+                    public void onSuccess() {
+                        finishList(listId, null);
+                    }
+
+                    @Override
+                    public void onError(Exception fallbackError) {
+                        finishList(listId, fallbackError);
+                    }
+                });
+            }
+        });
+    }
+
+    private void finishList(String listId, Exception error) {
+        List<SyncManager.OnSyncListener> finished;
+        synchronized (lock) {
+            finished = listWaiters.remove(listId);
+        }
+        for (SyncManager.OnSyncListener waiter : finished) {
+            if (error == null) {
+                waiter.onSuccess();
+            } else {
+                waiter.onError(error);
+            }
+        }
+    }
+
+    private void requestSync(String userId, boolean force, SyncManager.OnSyncListener listener) {
+        synchronized (lock) {
+            if (currentWaiters != null) {
+                joinedRequests++;
+                if (!force) {
+                    android.util.Log.d(TAG, "🔗 Joining the sync already in flight");
+                    currentWaiters.add(listener);
+                } else {
+                    if (followUpWaiters == null) {
+                        android.util.Log.d(TAG, "⛓️ Sync in flight - chaining one follow-up");
+                        followUpWaiters = new ArrayList<>();
+                        followUpUserId = userId;
+                        chainedFollowUps++;
+                    } else {
+                        android.util.Log.d(TAG, "🔗 Joining the chained follow-up sync");
+                    }
+                    followUpWaiters.add(listener);
+                }
+                return;
+            }
+
+            currentWaiters = new ArrayList<>();
+            currentWaiters.add(listener);
+        }
+
+        start(userId, force);
+    }
+
+    private void start(String userId, boolean force) {
+        SyncManager.OnSyncListener fanOut = new SyncManager.OnSyncListener() {
+            @Override
+            public void onSuccess() {
+                finish(null);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                finish(error);
+            }
+
+            @Override
+            public void onProgress(int listsMerged, int itemsMerged) {
+                for (SyncManager.OnSyncListener waiter : snapshotWaiters()) {
+                    waiter.onProgress(listsMerged, itemsMerged);
+                }
+            }
+
+            @Override
+            public void onPageSynced(long rowsSynced, long totalRows) {
+                for (SyncManager.OnSyncListener waiter : snapshotWaiters()) {
+                    waiter.onPageSynced(rowsSynced, totalRows);
+                }
+            }
+        };
+
+        if (force) {
+            syncManager.forceFullSync(userId, fanOut);
+        } else {
+            syncManager.smartSync(userId, fanOut);
+        }
+    }
+
+    private void finish(Exception error) {
+        List<SyncManager.OnSyncListener> finished;
+        List<SyncManager.OnSyncListener> next;
+        String nextUserId;
+        synchronized (lock) {
+            finished = currentWaiters;
+            next = followUpWaiters;
+            nextUserId = followUpUserId;
+            followUpWaiters = null;
+            followUpUserId = null;
+            // Waiters of the follow-up become the current ones, or we go idle
+            currentWaiters = next;
+        }
+
+        for (SyncManager.OnSyncListener waiter : finished) {
+            if (error == null) {
+                waiter.onSuccess();
+            } else {
+                waiter.onError(error);
+            }
+        }
+
+        if (next != null) {
+            start(nextUserId, true);
+        }
+    }
+
+    private List<SyncManager.OnSyncListener> snapshotWaiters() {
+        synchronized (lock) {
+            return currentWaiters == null
+                    ? new ArrayList<>()
+                    : new ArrayList<>(currentWaiters);
+        }
+    }
+
+    // ===== STATE =====
+
+    public boolean isSyncing() {
+        synchronized (lock) {
+            return currentWaiters != null;
+        }
+    }
+
+    /**
+     * Requests that were served by a sync someone else started
+     */
+    public long getJoinedRequests() {
+        synchronized (lock) {
+            return joinedRequests;
+        }
+    }
+
+    public long getChainedFollowUps() {
+        synchronized (lock) {
+            return chainedFollowUps;
+        }
+    }
+
+    public SyncManager getSyncManager() {
+        return syncManager;
+    }
+}
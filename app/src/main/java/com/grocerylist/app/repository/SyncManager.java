@@ -3,14 +3,27 @@ package com.grocerylist.app.repository;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.grocerylist.app.api.SyncStreamReader;
+import com.grocerylist.app.database.MergeResult;
+import com.grocerylist.app.models.DigestRequest;
 import com.grocerylist.app.models.GroceryItem;
 import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.utils.AppExecutors;
 import com.grocerylist.app.utils.Constants;
+import com.grocerylist.app.utils.HybridLogicalClock;
+import com.grocerylist.app.utils.JsonUtils;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.core.Single;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
 
 /**
  * Manages synchronization between local and remote data sources
@@ -19,14 +32,42 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 public class SyncManager {
     private static final String TAG = "GrocerySync";
     private static final String PREF_LAST_SYNC_DURATION = "last_sync_duration";
-    private static final long MIN_SYNC_INTERVAL_MS = 20000; // 20 seconds
+    private static final String PREF_SYNC_COUNT = "sync_count";
+    private static final String PREF_NO_OP_SYNC_COUNT = "no_op_sync_count";
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int SYNC_PAGE_SIZE = 500;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final String ETAG_SCOPE_FULL = "sync";
+    // The fallback cursor is built from device clocks, which can lag behind each other
+    private static final long CURSOR_OVERLAP_MS = 10 * 60 * 1000; // 10 minutes
     private final LocalDataSource localDataSource;
     private final RemoteDataSource remoteDataSource;
     private final SharedPreferences preferences;
+    private final SyncStreamReader streamReader;
+    private final TombstoneCollector tombstoneCollector;
+    private final HybridLogicalClock clock;
+    private final DirtyRowPusher dirtyRowPusher;
+    private final AdaptiveSyncScheduler scheduler;
+    private final AppExecutors executors;
+    private volatile boolean pagedSyncUnsupported;
+    private volatile boolean digestSyncUnsupported;
 
     public interface OnSyncListener {
         void onSuccess();
         void onError(Exception error);
+
+        /**
+         * Running totals of merged rows, posted on the main thread while a sync streams in
+         */
+        default void onProgress(int listsMerged, int itemsMerged) {
+        }
+
+        /**
+         * Paged full sync only: rows synced so far (including resumed pages) out of the total,
+         * posted on the main thread after each committed page. totalRows is -1 if unknown.
+         */
+        default void onPageSynced(long rowsSynced, long totalRows) {
+        }
     }
 
     public SyncManager(LocalDataSource localDataSource, RemoteDataSource remoteDataSource, Context context) {
@@ -36,19 +77,26 @@ public class SyncManager {
                 Constants.PREFS_NAME,
                 Context.MODE_PRIVATE
         );
+        this.streamReader = new SyncStreamReader(JsonUtils.GSON, SyncStreamReader.DEFAULT_CHUNK_SIZE);
+        this.tombstoneCollector = TombstoneCollector.getInstance(context);
+        this.clock = HybridLogicalClock.getInstance(context);
+        this.dirtyRowPusher = new DirtyRowPusher(localDataSource, remoteDataSource);
+        this.scheduler = new AdaptiveSyncScheduler(preferences);
+        this.executors = AppExecutors.getInstance();
     }
 
     // ===== SYNC OPERATIONS =====
 
     /**
-     * Smart sync - only syncs if enough time has passed since last sync
+     * Smart sync - only syncs once the adaptive interval has passed since the last sync
      */
     public void smartSync(String userId, OnSyncListener listener) {
         long lastSync = preferences.getLong(Constants.PREF_LAST_SYNC, 0);
-        long timeSinceLastSync = System.currentTimeMillis() - lastSync;
+        long now = System.currentTimeMillis();
 
-        if (timeSinceLastSync < MIN_SYNC_INTERVAL_MS) {
-            android.util.Log.d(TAG, "⏭️ Skipping sync - synced " + timeSinceLastSync + "ms ago");
+        if (!scheduler.isDue(lastSync, now)) {
+            android.util.Log.d(TAG, "⏭️ Skipping sync - synced " + (now - lastSync) + "ms ago, interval " +
+                    scheduler.getIntervalMs() + "ms");
             listener.onSuccess();
             return;
         }
@@ -57,130 +105,536 @@ public class SyncManager {
     }
 
     /**
-     * Force a full sync regardless of last sync time
+     * Force a sync regardless of last sync time.
+     * First pushes local rows the server hasn't acknowledged, then pulls only the changes
+     * since the stored cursor; without a usable cursor it reconciles by list digest,
+     * or pulls everything on first run.
      */
     public void forceFullSync(String userId, OnSyncListener listener) {
+        Single.fromCallable(dirtyRowPusher::push)
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        pushed -> pull(userId, listener),
+                        throwable -> {
+                            // Pushing is best effort - the rows stay dirty for the next cycle
+                            android.util.Log.w(TAG, "⚠️ Dirty row push failed", throwable);
+                            pull(userId, listener);
+                        },
+                        remoteDataSource.getDisposables()
+                );
+    }
+
+    private void pull(String userId, OnSyncListener listener) {
+        String cursor = preferences.getString(Constants.PREF_SYNC_CURSOR, null);
+
+        if (cursor == null) {
+            reconcile(userId, listener);
+        } else {
+            pullChanges(userId, cursor, listener);
+        }
+    }
+
+    /**
+     * Fetches and merges just one list and its items - much less than a full sync when
+     * the user opens a list. The account-wide cursor and last-sync time are left alone,
+     * so the next delta may see these rows again and skip them as not newer.
+     * Fails with a 404 if the backend doesn't know the list (or the endpoint), see {@link #isNotFound}.
+     */
+    public void syncList(String userId, String listId, OnSyncListener listener) {
         long startTime = System.currentTimeMillis();
-        android.util.Log.d(TAG, "🔄 Starting full sync...");
+        android.util.Log.d(TAG, "🔄 Syncing list " + listId + "...");
+
+        remoteDataSource.getListSync(listId, userId)
+                .map(response -> mergeStream(response, listener))
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> {
+                            android.util.Log.d(TAG, "✅ List synced in " + (System.currentTimeMillis() - startTime) + "ms");
+                            listener.onSuccess();
+                        },
+                        throwable -> {
+                            if (isNotFound(throwable)) {
+                                // SyncCoordinator falls back to a smart sync, so it stays single-flight
+                                android.util.Log.w(TAG, "⚠️ List sync not available");
+                                listener.onError(asException(throwable));
+                                return;
+                            }
+                            android.util.Log.e(TAG, "❌ List sync failed after " + (System.currentTimeMillis() - startTime) + "ms", throwable);
+                            listener.onError(asException(throwable));
+                        },
+                        remoteDataSource.getDisposables()
+                );
+    }
 
-        remoteDataSource.getDisposables().add(
-                remoteDataSource.getAllData(userId)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(
-                                syncData -> {
-                                    long networkTime = System.currentTimeMillis() - startTime;
-                                    android.util.Log.d(TAG, "✅ Network call completed in " + networkTime + "ms");
-                                    android.util.Log.d(TAG, "📦 Received " +
-                                            (syncData.getLists() != null ? syncData.getLists().size() : 0) + " lists, " +
-                                            (syncData.getItems() != null ? syncData.getItems().size() : 0) + " items");
-
-                                    // Perform database operations on background thread
-                                    new Thread(() -> {
-                                        long dbStartTime = System.currentTimeMillis();
-                                        try {
-                                            // Smart merge for lists
-                                            if (syncData.getLists() != null && !syncData.getLists().isEmpty()) {
-                                                mergeListsFromCloud(syncData.getLists());
-                                            }
-
-                                            // Smart merge for items
-                                            if (syncData.getItems() != null && !syncData.getItems().isEmpty()) {
-                                                mergeItemsFromCloud(syncData.getItems());
-                                            }
-
-                                            long totalTime = System.currentTimeMillis() - startTime;
-                                            long dbTime = System.currentTimeMillis() - dbStartTime;
-
-                                            // Save sync time and duration
-                                            preferences.edit()
-                                                    .putLong(Constants.PREF_LAST_SYNC, System.currentTimeMillis())
-                                                    .putLong(PREF_LAST_SYNC_DURATION, totalTime)
-                                                    .apply();
-
-                                            android.util.Log.d(TAG, "💾 Database save completed in " + dbTime + "ms");
-                                            android.util.Log.d(TAG, "✅ Total sync time: " + totalTime + "ms");
-
-                                            // Call listener on main thread
-                                            runOnMainThread(listener::onSuccess);
-
-                                        } catch (Exception e) {
-                                            android.util.Log.e(TAG, "❌ Sync failed", e);
-                                            runOnMainThread(() -> listener.onError(e));
-                                        }
-                                    }).start();
-                                },
-                                throwable -> {
-                                    long failTime = System.currentTimeMillis() - startTime;
-                                    android.util.Log.e(TAG, "❌ Sync failed after " + failTime + "ms");
-                                    listener.onError((Exception) throwable);
-                                }
-                        )
-        );
+    /**
+     * Forgets the delta cursor and ETag so the next sync downloads everything again
+     */
+    public void resetSyncCursor() {
+        preferences.edit()
+                .remove(Constants.PREF_SYNC_CURSOR)
+                .remove(Constants.PREF_SYNC_ETAG)
+                .remove(Constants.PREF_SYNC_ETAG_SCOPE)
+                .remove(Constants.PREF_SYNC_PAGE_TOKEN)
+                .remove(Constants.PREF_SYNC_PAGE_ROWS)
+                .remove(Constants.PREF_SYNC_PAGE_HIGH_WATER)
+                .apply();
     }
 
-    // ===== MERGE LOGIC =====
+    /**
+     * Catches up without a cursor. If we already hold lists, their digests are sent and
+     * only the lists that differ come back; an empty database (or an interrupted paged
+     * sync) goes through the paged full sync instead.
+     */
+    private void reconcile(String userId, OnSyncListener listener) {
+        if (digestSyncUnsupported || preferences.getString(Constants.PREF_SYNC_PAGE_TOKEN, null) != null) {
+            pullAllData(userId, listener);
+            return;
+        }
+
+        // Computes any missing digests first, so this is a write
+        Single.fromCallable(localDataSource::getListDigests)
+                .subscribeOn(executors.diskWriteScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        digests -> {
+                            if (digests.isEmpty()) {
+                                pullAllData(userId, listener);
+                            } else {
+                                pullByDigest(userId, digests, listener);
+                            }
+                        },
+                        throwable -> listener.onError(asException(throwable)),
+                        remoteDataSource.getDisposables()
+                );
+    }
+
+    private void pullByDigest(String userId, Map<String, String> digests, OnSyncListener listener) {
+        long startTime = System.currentTimeMillis();
+        android.util.Log.d(TAG, "🔄 Reconciling " + digests.size() + " lists by digest...");
+
+        remoteDataSource.syncByDigest(new DigestRequest(userId, digests))
+                .map(response -> mergeStream(response, listener))
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> onSyncCompleted(result, startTime, listener),
+                        throwable -> {
+                            if (isNotFound(throwable)) {
+                                android.util.Log.w(TAG, "⚠️ Backend has no digest sync - using full sync");
+                                digestSyncUnsupported = true;
+                                pullAllData(userId, listener);
+                                return;
+                            }
+                            long failTime = System.currentTimeMillis() - startTime;
+                            android.util.Log.e(TAG, "❌ Digest sync failed after " + failTime + "ms", throwable);
+                            listener.onError(asException(throwable));
+                        },
+                        remoteDataSource.getDisposables()
+                );
+    }
 
     /**
-     * Merges cloud lists with local lists using timestamp-based conflict resolution
+     * Full sync, page by page. Resumes from the checkpoint if an earlier attempt was interrupted.
+     * Falls back to the single-response sync on backends without api/sync/pages.
      */
-    private void mergeListsFromCloud(List<GroceryList> cloudLists) {
-        int inserted = 0;
-        int updated = 0;
-        int skipped = 0;
-
-        for (GroceryList cloudList : cloudLists) {
-            GroceryList localList = localDataSource.getListById(cloudList.getId());
-
-            if (localList == null) {
-                // List doesn't exist locally, insert it
-                localDataSource.insertList(cloudList);
-                inserted++;
-            } else {
-                // List exists - keep the version with the most recent updatedAt timestamp
-                if (cloudList.getUpdatedAt() > localList.getUpdatedAt()) {
-                    // Cloud version is newer, use it
-                    localDataSource.insertList(cloudList);
-                    updated++;
-                } else {
-                    // Local version is newer or same age, keep it (do nothing)
-                    skipped++;
+    private void pullAllData(String userId, OnSyncListener listener) {
+        if (pagedSyncUnsupported) {
+            pullAllDataUnpaged(userId, listener);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        boolean resuming = preferences.getString(Constants.PREF_SYNC_PAGE_TOKEN, null) != null;
+        android.util.Log.d(TAG, resuming
+                ? "🔄 Resuming paged sync after " + preferences.getLong(Constants.PREF_SYNC_PAGE_ROWS, 0) + " rows..."
+                : "🔄 Starting paged full sync...");
+
+        Single.fromCallable(() -> pullPages(userId, listener))
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> onSyncCompleted(result, startTime, listener),
+                        throwable -> {
+                            // A 404 for a page token means the token is gone, not the endpoint
+                            if (throwable instanceof PageRequestException
+                                    && ((PageRequestException) throwable).firstPage
+                                    && isNotFound(throwable)) {
+                                android.util.Log.w(TAG, "⚠️ Backend has no paged sync - using single-response sync");
+                                pagedSyncUnsupported = true;
+                                pullAllDataUnpaged(userId, listener);
+                                return;
+                            }
+                            if (resuming && isCursorRejected(throwable)) {
+                                android.util.Log.w(TAG, "⚠️ Page token expired - restarting paged sync");
+                                clearPageCheckpoint();
+                                pullAllData(userId, listener);
+                                return;
+                            }
+                            long failTime = System.currentTimeMillis() - startTime;
+                            android.util.Log.e(TAG, "❌ Sync failed after " + failTime + "ms - will resume from the last page", throwable);
+                            listener.onError(asException(throwable));
+                        },
+                        remoteDataSource.getDisposables()
+                );
+    }
+
+    /**
+     * Fetches and merges pages until the server has no more. Each page is committed and
+     * checkpointed before the next one is requested, so an interrupted sync only redoes
+     * the page it lost; re-merging a page is harmless because the merge skips rows that
+     * aren't newer. Blocking - runs on the IO thread.
+     */
+    private StreamMergeResult pullPages(String userId, OnSyncListener listener) throws IOException {
+        String pageToken = preferences.getString(Constants.PREF_SYNC_PAGE_TOKEN, null);
+        long rowsSynced = pageToken == null ? 0 : preferences.getLong(Constants.PREF_SYNC_PAGE_ROWS, 0);
+        long highWater = pageToken == null ? -1 : preferences.getLong(Constants.PREF_SYNC_PAGE_HIGH_WATER, -1);
+
+        while (true) {
+            Response<ResponseBody> response = awaitPage(userId, pageToken);
+            if (!response.isSuccessful() || response.body() == null) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
                 }
+                throw new PageRequestException(response, pageToken == null);
+            }
+
+            StreamMergeHandler handler = new StreamMergeHandler(listener);
+            SyncStreamReader.Result page = streamReader.read(response.body(), handler);
+            rowsSynced += page.getListCount() + page.getItemCount();
+            highWater = Math.max(highWater, handler.highWater);
+
+            long total = page.getTotalCount();
+            long synced = rowsSynced;
+            runOnMainThread(() -> listener.onPageSynced(synced, total));
+            android.util.Log.d(TAG, "📄 Page committed: " + rowsSynced + "/" + total + " rows");
+
+            if (page.getNextPageToken() == null) {
+                clearPageCheckpoint();
+                // A full download says nothing about how often rows change
+                return new StreamMergeResult(resolveNextCursor(page.getCursor(), highWater), null, StreamMergeResult.NOT_A_SAMPLE);
+            }
+
+            pageToken = page.getNextPageToken();
+            // commit(), not apply() - the checkpoint must be on disk before we move past this page
+            preferences.edit()
+                    .putString(Constants.PREF_SYNC_PAGE_TOKEN, pageToken)
+                    .putLong(Constants.PREF_SYNC_PAGE_ROWS, rowsSynced)
+                    .putLong(Constants.PREF_SYNC_PAGE_HIGH_WATER, highWater)
+                    .commit();
+        }
+    }
+
+    private Response<ResponseBody> awaitPage(String userId, String pageToken) throws IOException {
+        try {
+            return remoteDataSource.getSyncPage(userId, pageToken, SYNC_PAGE_SIZE).blockingGet();
+        } catch (RuntimeException e) {
+            // blockingGet wraps checked exceptions - unwrap so callers see the IOException
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw e;
         }
+    }
 
-        android.util.Log.d(TAG, "📋 Lists: " + inserted + " inserted, " + updated + " updated, " + skipped + " skipped");
+    private void clearPageCheckpoint() {
+        preferences.edit()
+                .remove(Constants.PREF_SYNC_PAGE_TOKEN)
+                .remove(Constants.PREF_SYNC_PAGE_ROWS)
+                .remove(Constants.PREF_SYNC_PAGE_HIGH_WATER)
+                .commit();
+    }
+
+    private void pullAllDataUnpaged(String userId, OnSyncListener listener) {
+        long startTime = System.currentTimeMillis();
+        android.util.Log.d(TAG, "🔄 Starting full sync...");
+
+        remoteDataSource.getAllDataStream(userId, getEtag(ETAG_SCOPE_FULL))
+                .map(response -> mergeStream(response, listener).withoutRateSample().withEtagScope(ETAG_SCOPE_FULL))
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> onSyncCompleted(result, startTime, listener),
+                        throwable -> {
+                            long failTime = System.currentTimeMillis() - startTime;
+                            android.util.Log.e(TAG, "❌ Sync failed after " + failTime + "ms", throwable);
+                            listener.onError(asException(throwable));
+                        },
+                        remoteDataSource.getDisposables()
+                );
+    }
+
+    private void pullChanges(String userId, String cursor, OnSyncListener listener) {
+        long startTime = System.currentTimeMillis();
+        android.util.Log.d(TAG, "🔄 Starting delta sync since " + cursor + "...");
+
+        remoteDataSource.getChangesStream(userId, cursor, getEtag(changesEtagScope(cursor)))
+                .map(response -> mergeStream(response, listener).withEtagScope(changesEtagScope(cursor)))
+                .subscribeOn(executors.networkScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> onSyncCompleted(result, startTime, listener),
+                        throwable -> {
+                            if (isCursorRejected(throwable)) {
+                                android.util.Log.w(TAG, "⚠️ Sync cursor rejected - reconciling by digest");
+                                resetSyncCursor();
+                                reconcile(userId, listener);
+                                return;
+                            }
+                            long failTime = System.currentTimeMillis() - startTime;
+                            android.util.Log.e(TAG, "❌ Delta sync failed after " + failTime + "ms", throwable);
+                            listener.onError(asException(throwable));
+                        },
+                        remoteDataSource.getDisposables()
+                );
     }
 
     /**
-     * Merges cloud items with local items using timestamp-based conflict resolution
+     * Decodes the response body chunk by chunk and merges each chunk as it arrives.
+     * A 304 means our data is already current and skips the merge entirely.
+     * Runs on the network thread that owns the response; the merges themselves run on the db-write thread.
+     *
+     * Each chunk is merged in its own transaction, so Room invalidates once per table per
+     * chunk rather than once per sync, and local writes aren't locked out for the whole
+     * download. A sync that fails halfway keeps the chunks it already merged; that is safe
+     * because the cursor and ETag only move once the whole stream has been merged, and the
+     * retry skips rows that are not newer.
      */
-    private void mergeItemsFromCloud(List<GroceryItem> cloudItems) {
-        int inserted = 0;
-        int updated = 0;
-        int skipped = 0;
-
-        for (GroceryItem cloudItem : cloudItems) {
-            GroceryItem localItem = localDataSource.getItemById(cloudItem.getId());
-
-            if (localItem == null) {
-                // Item doesn't exist locally, insert it
-                localDataSource.insertItem(cloudItem);
-                inserted++;
+    private StreamMergeResult mergeStream(Response<ResponseBody> response, OnSyncListener listener) throws IOException {
+        if (response.code() == HTTP_NOT_MODIFIED) {
+            if (response.errorBody() != null) {
+                response.errorBody().close();
+            }
+            return StreamMergeResult.NOT_MODIFIED;
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new HttpException(response);
+        }
+
+        StreamMergeHandler handler = new StreamMergeHandler(listener);
+        SyncStreamReader.Result streamResult = streamReader.read(response.body(), handler);
+
+        android.util.Log.d(TAG, "📦 Received " + streamResult.getListCount() + " lists, " +
+                streamResult.getItemCount() + " items");
+        android.util.Log.d(TAG, "📋 Lists: " + handler.listsInserted + " inserted, " +
+                handler.listsUpdated + " updated");
+        android.util.Log.d(TAG, "🛒 Items: " + handler.itemsInserted + " inserted, " +
+                handler.itemsUpdated + " updated");
+
+        return new StreamMergeResult(
+                resolveNextCursor(streamResult.getCursor(), handler.highWater),
+                response.headers().get("ETag"),
+                handler.getRowsChanged());
+    }
+
+    private void onSyncCompleted(StreamMergeResult result, long startTime, OnSyncListener listener) {
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        // Save sync time, duration and the cursor for the next delta
+        SharedPreferences.Editor editor = preferences.edit()
+                .putLong(Constants.PREF_LAST_SYNC, System.currentTimeMillis())
+                .putLong(PREF_LAST_SYNC_DURATION, totalTime)
+                .putLong(PREF_SYNC_COUNT, getSyncCount() + 1);
+        if (result.notModified) {
+            editor.putLong(PREF_NO_OP_SYNC_COUNT, getNoOpSyncCount() + 1);
+        } else {
+            if (result.nextCursor != null) {
+                editor.putString(Constants.PREF_SYNC_CURSOR, result.nextCursor);
+            }
+            if (result.etag != null && result.etagScope != null) {
+                editor.putString(Constants.PREF_SYNC_ETAG, result.etag)
+                        .putString(Constants.PREF_SYNC_ETAG_SCOPE, result.etagScope);
             } else {
-                // Item exists - keep the version with the most recent updatedAt timestamp
-                if (cloudItem.getUpdatedAt() > localItem.getUpdatedAt()) {
-                    // Cloud version is newer, use it
-                    localDataSource.insertItem(cloudItem);
-                    updated++;
-                } else {
-                    // Local version is newer or same age, keep it (do nothing)
-                    skipped++;
-                }
+                editor.remove(Constants.PREF_SYNC_ETAG)
+                        .remove(Constants.PREF_SYNC_ETAG_SCOPE);
+            }
+        }
+        editor.apply();
+        scheduler.onSyncCompleted(result.rowsChanged, System.currentTimeMillis());
+
+        android.util.Log.d(TAG, result.notModified
+                ? "✅ Already up to date (304) in " + totalTime + "ms"
+                : "✅ Total sync time: " + totalTime + "ms");
+        android.util.Log.d(TAG, "⏱️ " + remoteDataSource.getSyncStreamLatency());
+
+        // The server now has every delete made before this sync started
+        tombstoneCollector.advanceWatermark(startTime);
+        tombstoneCollector.maybeCollect();
+        listener.onSuccess();
+    }
+
+    /**
+     * Prefers the server-issued cursor. Older backends don't send one, so fall back
+     * to the high-water updatedAt of the rows we just received, minus CURSOR_OVERLAP_MS:
+     * updatedAt is stamped by the writing device, and a row written later by a device whose
+     * clock is behind would otherwise sort before the cursor and never be fetched.
+     * Rows inside the overlap come again and are skipped by the merge as not newer.
+     */
+    private String resolveNextCursor(String serverCursor, long highWater) {
+        if (serverCursor != null && !serverCursor.isEmpty()) {
+            return serverCursor;
+        }
+
+        if (highWater < 0) {
+            // Nothing changed - keep the cursor we already have
+            return null;
+        }
+        return String.valueOf(Math.max(0, highWater - CURSOR_OVERLAP_MS));
+    }
+
+    // ===== ETAGS =====
+
+    // An ETag only describes the response of the exact request that produced it
+
+    private static String changesEtagScope(String cursor) {
+        return "changes?since=" + cursor;
+    }
+
+    /**
+     * The stored ETag if it came from this request, otherwise null
+     */
+    private String getEtag(String scope) {
+        return scope.equals(preferences.getString(Constants.PREF_SYNC_ETAG_SCOPE, null))
+                ? preferences.getString(Constants.PREF_SYNC_ETAG, null)
+                : null;
+    }
+
+    private Exception asException(Throwable throwable) {
+        return throwable instanceof Exception ? (Exception) throwable : new Exception(throwable);
+    }
+
+    static boolean isNotFound(Throwable throwable) {
+        return throwable instanceof HttpException && ((HttpException) throwable).code() == HTTP_NOT_FOUND;
+    }
+
+    private boolean isCursorRejected(Throwable throwable) {
+        if (!(throwable instanceof HttpException)) {
+            return false;
+        }
+        int code = ((HttpException) throwable).code();
+        return code == 400 || code == 410;
+    }
+
+    // ===== MERGE LOGIC =====
+
+    /**
+     * Merges streamed chunks into Room using hybrid-logical-clock conflict resolution,
+     * tracks the high-water updatedAt for the delta cursor, and moves our clock past
+     * every remote stamp so the next local edit orders after what we've seen.
+     * Each chunk is merged on the db-write thread, queued behind local edits; the reading
+     * thread waits for it, so no more than one chunk is decoded ahead of the database.
+     */
+    private class StreamMergeHandler implements SyncStreamReader.ChunkHandler {
+        final OnSyncListener listener;
+        int listsInserted;
+        int listsUpdated;
+        int itemsInserted;
+        int itemsUpdated;
+        long highWater = -1;
+
+        StreamMergeHandler(OnSyncListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onLists(List<GroceryList> lists) {
+            MergeResult result = onDiskWrite(() -> localDataSource.mergeListsFromCloud(lists));
+            listsInserted += result.inserted;
+            listsUpdated += result.updated;
+            long maxHlc = 0;
+            for (GroceryList list : lists) {
+                highWater = Math.max(highWater, list.getUpdatedAt());
+                maxHlc = Math.max(maxHlc, list.getHlc());
             }
+            clock.observe(maxHlc);
+            reportProgress();
+        }
+
+        @Override
+        public void onItems(List<GroceryItem> items) {
+            MergeResult result = onDiskWrite(() -> localDataSource.mergeItemsFromCloud(items));
+            itemsInserted += result.inserted;
+            itemsUpdated += result.updated;
+            long maxHlc = 0;
+            for (GroceryItem item : items) {
+                highWater = Math.max(highWater, item.getUpdatedAt());
+                maxHlc = Math.max(maxHlc, item.getHlc());
+            }
+            clock.observe(maxHlc);
+            reportProgress();
+        }
+
+        @Override
+        public void onPatches(List<ItemPatch> patches) {
+            itemsUpdated += onDiskWrite(() -> localDataSource.mergeItemPatchesFromCloud(patches));
+            long maxHlc = 0;
+            for (ItemPatch patch : patches) {
+                highWater = Math.max(highWater, patch.getUpdatedAt());
+                maxHlc = Math.max(maxHlc, patch.getHlc());
+            }
+            clock.observe(maxHlc);
+            reportProgress();
+        }
+
+        int getRowsChanged() {
+            return listsInserted + listsUpdated + itemsInserted + itemsUpdated;
+        }
+
+        private <T> T onDiskWrite(Callable<T> merge) {
+            return Single.fromCallable(merge)
+                    .subscribeOn(executors.diskWriteScheduler())
+                    .blockingGet();
         }
 
-        android.util.Log.d(TAG, "🛒 Items: " + inserted + " inserted, " + updated + " updated, " + skipped + " skipped");
+        private void reportProgress() {
+            int lists = listsInserted + listsUpdated;
+            int items = itemsInserted + itemsUpdated;
+            runOnMainThread(() -> listener.onProgress(lists, items));
+        }
+    }
+
+    /**
+     * A refused page request, remembering whether it asked for the first page (no token)
+     */
+    private static class PageRequestException extends HttpException {
+        final boolean firstPage;
+
+        PageRequestException(Response<?> response, boolean firstPage) {
+            super(response);
+            this.firstPage = firstPage;
+        }
+    }
+
+    private static class StreamMergeResult {
+        static final int NOT_A_SAMPLE = -1;
+        static final StreamMergeResult NOT_MODIFIED = new StreamMergeResult(true, null, null, null, 0);
+
+        final boolean notModified;
+        final String nextCursor;
+        final String etag;
+        final String etagScope; // Request the ETag answers, null if it must not be stored
+        final int rowsChanged; // Rows actually inserted or updated locally, NOT_A_SAMPLE for full syncs
+
+        StreamMergeResult(String nextCursor, String etag, int rowsChanged) {
+            this(false, nextCursor, etag, null, rowsChanged);
+        }
+
+        private StreamMergeResult(boolean notModified, String nextCursor, String etag, String etagScope, int rowsChanged) {
+            this.notModified = notModified;
+            this.nextCursor = nextCursor;
+            this.etag = etag;
+            this.etagScope = etagScope;
+            this.rowsChanged = rowsChanged;
+        }
+
+        StreamMergeResult withoutRateSample() {
+            return new StreamMergeResult(notModified, nextCursor, etag, etagScope, NOT_A_SAMPLE);
+        }
+
+        StreamMergeResult withEtagScope(String scope) {
+            return new StreamMergeResult(notModified, nextCursor, etag, scope, rowsChanged);
+        }
     }
 
     // ===== HELPER METHODS =====
@@ -196,4 +650,34 @@ public class SyncManager {
     public long getLastSyncDuration() {
         return preferences.getLong(PREF_LAST_SYNC_DURATION, 0);
     }
+
+    /**
+     * Whether smartSync would hit the network now. Usually false right after
+     * a background sync by SyncWorker.
+     */
+    public boolean isSyncDue() {
+        return scheduler.isDue(preferences.getLong(Constants.PREF_LAST_SYNC, 0), System.currentTimeMillis());
+    }
+
+    /**
+     * Current smartSync interval, adapted to the observed change rate
+     */
+    public long getSyncIntervalMs() {
+        return scheduler.getIntervalMs();
+    }
+
+    public String getSyncIntervalReason() {
+        return scheduler.getReason();
+    }
+
+    public long getSyncCount() {
+        return preferences.getLong(PREF_SYNC_COUNT, 0);
+    }
+
+    /**
+     * Syncs the server answered with 304 Not Modified
+     */
+    public long getNoOpSyncCount() {
+        return preferences.getLong(PREF_NO_OP_SYNC_COUNT, 0);
+    }
 }
\ No newline at end of file
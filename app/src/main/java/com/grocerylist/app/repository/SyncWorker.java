@@ -0,0 +1,218 @@
+package com.grocerylist.app.repository;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.grocerylist.app.utils.Constants;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Background sync through WorkManager.
+ *
+ * Drains the outbox and then runs a sync while the app isn't open, so the next launch
+ * usually finds the data fresh and its smartSync has nothing to wait for.
+ * Only runs on a connected network with the battery not low. Requests are coalesced:
+ * there is one periodic job, and one follow-up job after local edits no matter how many
+ * edits are made (plus one chained run for edits made while it runs).
+ * Failed runs are retried with WorkManager's exponential backoff.
+ */
+public class SyncWorker extends Worker {
+    private static final String TAG = "GrocerySyncWorker";
+
+    public static final String UNIQUE_WORK_NAME = "grocery-sync";
+    public static final String PERIODIC_WORK_NAME = "grocery-sync-periodic";
+
+    static final int MAX_ATTEMPTS = 5;
+    private static final long BACKOFF_DELAY_MS = 30 * 1000;
+    // Lets a burst of edits land first; the outbox uploads them itself while the app is alive
+    private static final long EDIT_DELAY_MS = 30 * 1000;
+    private static final long PERIODIC_INTERVAL_MS = 60 * 60 * 1000; // 1 hour
+    private static final long DRAIN_TIMEOUT_MS = 2 * 60 * 1000;
+    private static final long SYNC_TIMEOUT_MS = 5 * 60 * 1000;
+
+    /**
+     * The work itself, swapped for a fake in tests. Both calls block.
+     */
+    public interface Task {
+        /**
+         * Returns true if the outbox is empty afterwards
+         */
+        boolean drainOutbox() throws Exception;
+
+        void sync() throws Exception;
+    }
+
+    private final Task task;
+
+    // Used by WorkManager's default factory
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        this(context, params, new AppTask(context.getApplicationContext()));
+    }
+
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params, Task task) {
+        super(context, params);
+        this.task = task;
+    }
+
+    // ===== SCHEDULING =====
+
+    /**
+     * Queues one sync after local edits. Joins a run that is still waiting; if one is already
+     * running, a follow-up is chained after it, since the running one may have drained the
+     * outbox before this edit was written. Doesn't block: the work state is read
+     * asynchronously and the request is queued once it is in.
+     */
+    public static void enqueue(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        ListenableFuture<List<WorkInfo>> workInfos = workManager.getWorkInfosForUniqueWork(UNIQUE_WORK_NAME);
+        // Runs on WorkManager's thread that completed the query - enqueueing is asynchronous too
+        workInfos.addListener(() -> {
+            ExistingWorkPolicy policy = isOnlyRunning(workInfos)
+                    ? ExistingWorkPolicy.APPEND_OR_REPLACE
+                    : ExistingWorkPolicy.KEEP;
+            workManager.enqueueUniqueWork(UNIQUE_WORK_NAME, policy, editRequest());
+        }, Runnable::run);
+    }
+
+    private static OneTimeWorkRequest editRequest() {
+        return new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(constraints())
+                .setInitialDelay(EDIT_DELAY_MS, TimeUnit.MILLISECONDS)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * True if the edit sync is running and no run is waiting behind it. A waiting run (or a
+     * run that starts after this check) drains the outbox after the edit was written.
+     * The future is already done when this is called.
+     */
+    private static boolean isOnlyRunning(ListenableFuture<List<WorkInfo>> workInfos) {
+        boolean running = false;
+        try {
+            for (WorkInfo info : workInfos.get()) {
+                if (info.getState() == WorkInfo.State.ENQUEUED || info.getState() == WorkInfo.State.BLOCKED) {
+                    return false;
+                }
+                running |= info.getState() == WorkInfo.State.RUNNING;
+            }
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            android.util.Log.w(TAG, "⚠️ Could not read sync work state: " + e.getMessage());
+        }
+        // Unknown - chaining one run too many beats missing an edit
+        return true;
+    }
+
+    /**
+     * Keeps the data fresh between launches. Safe to call on every start - the existing
+     * schedule is kept.
+     */
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                SyncWorker.class, PERIODIC_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                .setConstraints(constraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_MS, TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    static Constraints constraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+    }
+
+    // ===== WORK =====
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        int attempt = getRunAttemptCount() + 1;
+        try {
+            // Push before pulling, so the pull already sees our own edits
+            boolean drained = task.drainOutbox();
+            if (isStopped()) {
+                return Result.retry();
+            }
+            task.sync();
+
+            if (!drained) {
+                android.util.Log.w(TAG, "⚠️ Outbox not empty after attempt " + attempt);
+                return attempt >= MAX_ATTEMPTS ? Result.failure() : Result.retry();
+            }
+            android.util.Log.d(TAG, "✅ Background sync done (attempt " + attempt + ")");
+            return Result.success();
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "⚠️ Background sync failed (attempt " + attempt + "): " + e.getMessage());
+            return attempt >= MAX_ATTEMPTS ? Result.failure() : Result.retry();
+        }
+    }
+
+    /**
+     * The real work: the app's outbox and the shared SyncCoordinator
+     */
+    private static class AppTask implements Task {
+        private final Context context;
+
+        AppTask(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public boolean drainOutbox() throws Exception {
+            return OutboxManager.getInstance(context).drainAndWait(DRAIN_TIMEOUT_MS);
+        }
+
+        @Override
+        public void sync() throws Exception {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+
+            // Queues behind a sync the app may already have in flight
+            SyncCoordinator.getInstance(context).forceFullSync(Constants.DEFAULT_USER_ID,
+                    new SyncManager.OnSyncListener() {
+                        @Override
+                        public void onSuccess() {
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            failure.set(error);
+                            done.countDown();
+                        }
+                    });
+
+            if (!done.await(SYNC_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Sync did not finish within " + SYNC_TIMEOUT_MS + "ms");
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.grocerylist.app.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.grocerylist.app.database.DatabaseStats;
+import com.grocerylist.app.database.GroceryDao;
+import com.grocerylist.app.database.GroceryDatabase;
+import com.grocerylist.app.utils.AppExecutors;
+import com.grocerylist.app.utils.Constants;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.rxjava3.core.Completable;
+
+/**
+ * Garbage-collects soft-deleted rows.
+ *
+ * Deletes are tombstones (isDeleted = 1) so they can be uploaded and merged like any
+ * other change. A tombstone can be dropped once the server has acknowledged it:
+ * its upload has left the outbox and a later sync succeeded. The start time of the last
+ * successful sync is kept as the deletion watermark; tombstones older than it are purged,
+ * at most once per PURGE_INTERVAL_MS, and the freed pages are handed back with an
+ * incremental vacuum. The same pass trims change_log entries past their retention.
+ */
+public class TombstoneCollector {
+    private static final String TAG = "GroceryDb";
+    private static final long PURGE_INTERVAL_MS = 24 * 60 * 60 * 1000; // 1 day
+    private static final long CHANGE_LOG_RETENTION_MS = 7 * PURGE_INTERVAL_MS; // 1 week
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private static volatile TombstoneCollector instance;
+
+    private final GroceryDatabase database;
+    private final GroceryDao groceryDao;
+    private final SharedPreferences preferences;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Report lastReport;
+
+    /**
+     * Metrics of one pass
+     */
+    public static class Report {
+        public final DatabaseStats before;
+        public final DatabaseStats after;
+        public final int listsPurged;
+        public final int itemsPurged;
+        public final long durationMs;
+
+        Report(DatabaseStats before, DatabaseStats after, int listsPurged, int itemsPurged, long durationMs) {
+            this.before = before;
+            this.after = after;
+            this.listsPurged = listsPurged;
+            this.itemsPurged = itemsPurged;
+            this.durationMs = durationMs;
+        }
+    }
+
+    public static TombstoneCollector getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TombstoneCollector.class) {
+                if (instance == null) {
+                    instance = new TombstoneCollector(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private TombstoneCollector(Context context) {
+        this.database = GroceryDatabase.getDatabase(context);
+        this.groceryDao = database.groceryDao();
+        this.preferences = context.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // ===== WATERMARK =====
+
+    /**
+     * Called after a successful sync. Everything changed before it started is known to the server.
+     */
+    public void advanceWatermark(long syncStartedAt) {
+        if (syncStartedAt > getWatermark()) {
+            preferences.edit().putLong(Constants.PREF_DELETION_WATERMARK, syncStartedAt).apply();
+        }
+    }
+
+    public long getWatermark() {
+        return preferences.getLong(Constants.PREF_DELETION_WATERMARK, 0);
+    }
+
+    // ===== COLLECTION =====
+
+    /**
+     * Runs a pass in the background if the last one is older than PURGE_INTERVAL_MS
+     */
+    public void maybeCollect() {
+        long lastPurge = preferences.getLong(Constants.PREF_LAST_TOMBSTONE_PURGE, 0);
+        if (System.currentTimeMillis() - lastPurge < PURGE_INTERVAL_MS || getWatermark() == 0) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        // On the write thread: VACUUM locks out every other writer anyway
+        Completable.fromAction(this::collect)
+                .subscribeOn(AppExecutors.getInstance().diskWriteScheduler())
+                .doFinally(() -> running.set(false))
+                .subscribe(
+                        () -> { },
+                        throwable -> android.util.Log.e(TAG, "❌ Tombstone purge failed", throwable)
+                );
+    }
+
+    /**
+     * One full pass: purge acknowledged tombstones, then reclaim the space. Blocking.
+     */
+    public Report collect() {
+        long startTime = System.currentTimeMillis();
+        long watermark = getWatermark();
+        DatabaseStats before = DatabaseStats.capture(database);
+
+        int[] purged = new int[3];
+        database.runInTransaction(() -> {
+            // Items first - a list is only purged once none of its item rows are left
+            purged[1] = groceryDao.purgeItemTombstones(watermark);
+            purged[0] = groceryDao.purgeListTombstones(watermark);
+            groceryDao.deleteOrphanDigests();
+            purged[2] = database.changeLogDao().pruneOlderThan(System.currentTimeMillis() - CHANGE_LOG_RETENTION_MS);
+        });
+        vacuum();
+
+        DatabaseStats after = DatabaseStats.capture(database);
+        Report report = new Report(before, after, purged[0], purged[1], System.currentTimeMillis() - startTime);
+        lastReport = report;
+        preferences.edit().putLong(Constants.PREF_LAST_TOMBSTONE_PURGE, System.currentTimeMillis()).apply();
+
+        android.util.Log.d(TAG, "🧹 Purged " + report.listsPurged + " lists, " + report.itemsPurged +
+                " items, " + purged[2] + " change log entries in " + report.durationMs + "ms");
+        android.util.Log.d(TAG, "📊 Before: " + before);
+        android.util.Log.d(TAG, "📊 After: " + after);
+        return report;
+    }
+
+    /**
+     * Switching an existing database to incremental auto-vacuum takes one full VACUUM;
+     * after that each pass only releases the free pages.
+     */
+    private void vacuum() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        if (DatabaseStats.pragma(db, "auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            android.util.Log.d(TAG, "🗜️ Enabling incremental auto-vacuum (one-time VACUUM)");
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+            return;
+        }
+
+        // Frees one page per step, so drain the cursor
+        try (Cursor cursor = db.query("PRAGMA incremental_vacuum")) {
+            while (cursor.moveToNext()) {
+                // Nothing to read
+            }
+        }
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+}
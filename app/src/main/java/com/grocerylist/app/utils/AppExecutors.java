@@ -0,0 +1,304 @@
+package com.grocerylist.app.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * Process-wide background threads, instead of a new Thread per call.
+ *
+ * - diskWrite: one thread, so local writes reach SQLite's single writer in the order
+ *   they were made and never queue up on its lock
+ * - diskRead: a small pool for reads that don't go through LiveData
+ * - network: a small pool for HTTP calls, their retry and timeout timers, and reading the
+ *   responses; what they bring is written to Room on diskWrite
+ *
+ * Every executor has named threads that time out when idle and a bounded queue: once full,
+ * new work is rejected with RejectedExecutionException rather than piling up. The bound only
+ * applies to execute()/submit(); the Rx schedulers share the threads but are never rejected,
+ * since RxJava would report a rejection as an undeliverable error and the stream would hang.
+ * Work submitted with submit() can be cancelled through its Future while it is still queued.
+ * Each executor keeps its own counters, see {@link Stats}.
+ */
+public class AppExecutors {
+    private static final String TAG = "GroceryExecutors";
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final int DISK_WRITE_QUEUE = 256; // Room for a burst of quick-item taps
+    private static final int DISK_READ_THREADS = 2;
+    private static final int DISK_READ_QUEUE = 64;
+    private static final int NETWORK_THREADS = 4;
+    // SyncCoordinator's single-flight keeps network work far below this
+    private static final int NETWORK_QUEUE = 64;
+
+    private static volatile AppExecutors instance;
+
+    private final MeteredExecutor diskWrite;
+    private final MeteredExecutor diskRead;
+    private final MeteredExecutor network;
+    private final Scheduler diskWriteScheduler;
+    private final Scheduler diskReadScheduler;
+    private final Scheduler networkScheduler;
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private AppExecutors() {
+        this.diskWrite = new MeteredExecutor("db-write", 1, DISK_WRITE_QUEUE);
+        this.diskRead = new MeteredExecutor("db-read", DISK_READ_THREADS, DISK_READ_QUEUE);
+        this.network = new MeteredExecutor("net", NETWORK_THREADS, NETWORK_QUEUE);
+        this.diskWriteScheduler = Schedulers.from(diskWrite::executeUnbounded);
+        this.diskReadScheduler = Schedulers.from(diskRead::executeUnbounded);
+        this.networkScheduler = Schedulers.from(network::executeUnbounded);
+    }
+
+    // ===== EXECUTORS =====
+
+    public MeteredExecutor diskWrite() {
+        return diskWrite;
+    }
+
+    public MeteredExecutor diskRead() {
+        return diskRead;
+    }
+
+    public MeteredExecutor network() {
+        return network;
+    }
+
+    // ===== RX SCHEDULERS =====
+
+    // Same threads and metrics as the executors, without the queue limit: an Rx chain is
+    // already subscribed when its task is scheduled, so there is no caller left to reject.
+
+    public Scheduler diskWriteScheduler() {
+        return diskWriteScheduler;
+    }
+
+    public Scheduler diskReadScheduler() {
+        return diskReadScheduler;
+    }
+
+    public Scheduler networkScheduler() {
+        return networkScheduler;
+    }
+
+    // ===== METRICS =====
+
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>();
+        stats.add(diskWrite.getStats());
+        stats.add(diskRead.getStats());
+        stats.add(network.getStats());
+        return stats;
+    }
+
+    /**
+     * Snapshot of one executor's counters
+     */
+    public static class Stats {
+        public final String name;
+        public final int active;
+        public final int queued;
+        public final int peakQueued;
+        public final long completed;
+        public final long failed;
+        public final long cancelled;
+        public final long rejected;
+        public final long averageWaitMs;
+        public final long maxWaitMs;
+        public final long averageRunMs;
+
+        Stats(String name, int active, int queued, int peakQueued, long completed, long failed,
+              long cancelled, long rejected, long averageWaitMs, long maxWaitMs, long averageRunMs) {
+            this.name = name;
+            this.active = active;
+            this.queued = queued;
+            this.peakQueued = peakQueued;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.averageRunMs = averageRunMs;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + active + " running, " + queued + " queued (peak " + peakQueued + "), " +
+                    completed + " done, " + failed + " failed, " + cancelled + " cancelled, " +
+                    rejected + " rejected, wait avg " + averageWaitMs + "ms / max " + maxWaitMs +
+                    "ms, run avg " + averageRunMs + "ms";
+        }
+    }
+
+    // ===== EXECUTOR =====
+
+    /**
+     * Fixed-size pool with a bounded queue that records how long work waits and runs.
+     * The bound is checked in execute(), so the Rx schedulers can bypass it.
+     */
+    public static class MeteredExecutor extends ThreadPoolExecutor {
+        private final String name;
+        private final int queueCapacity;
+        private final AtomicInteger peakQueued = new AtomicInteger();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        private final ThreadLocal<Long> runStart = new ThreadLocal<>();
+
+        MeteredExecutor(String name, int threads, int queueCapacity) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), namedThreads(name));
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            // No threads are kept around while the app is idle
+            allowCoreThreadTimeOut(true);
+            setRejectedExecutionHandler((runnable, executor) -> {
+                rejected.incrementAndGet();
+                android.util.Log.w(TAG, "⚠️ " + name + " queue full (" + queueCapacity + ") - rejecting work");
+                throw new RejectedExecutionException(name + " queue is full");
+            });
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (getQueue().size() >= queueCapacity) {
+                getRejectedExecutionHandler().rejectedExecution(command, this);
+                return;
+            }
+            executeUnbounded(command);
+        }
+
+        /**
+         * Queues the work even past the limit - for the Rx schedulers only
+         */
+        void executeUnbounded(Runnable command) {
+            // Plain runnables (RxJava's) get the same timing as submitted work
+            super.execute(command instanceof TimedTask ? command : new TimedTask<Void>(command, null));
+            peakQueued.accumulateAndGet(getQueue().size(), Math::max);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new TimedTask<>(runnable, value);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new TimedTask<>(callable);
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            super.beforeExecute(thread, runnable);
+            long now = System.nanoTime();
+            if (runnable instanceof TimedTask) {
+                long wait = now - ((TimedTask<?>) runnable).enqueuedAt;
+                totalWaitNanos.addAndGet(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+            }
+            started.incrementAndGet();
+            runStart.set(now);
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            Long start = runStart.get();
+            if (start != null) {
+                totalRunNanos.addAndGet(System.nanoTime() - start);
+            }
+
+            // FutureTask keeps the failure to itself - dig it out so it gets logged
+            if (throwable == null && runnable instanceof TimedTask && ((TimedTask<?>) runnable).isDone()) {
+                try {
+                    ((TimedTask<?>) runnable).get();
+                } catch (CancellationException e) {
+                    return; // Counted by TimedTask.cancel
+                } catch (ExecutionException e) {
+                    throwable = e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (throwable != null) {
+                failed.incrementAndGet();
+                android.util.Log.e(TAG, "❌ Uncaught failure on " + name, throwable);
+            } else {
+                completed.incrementAndGet();
+            }
+        }
+
+        public Stats getStats() {
+            long runs = Math.max(started.get(), 1);
+            return new Stats(name, getActiveCount(), getQueue().size(), peakQueued.get(),
+                    completed.get(), failed.get(), cancelled.get(), rejected.get(),
+                    TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / runs),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / runs));
+        }
+
+        /**
+         * Remembers when it was queued; cancelling it drops it from the queue
+         */
+        private class TimedTask<T> extends FutureTask<T> {
+            final long enqueuedAt = System.nanoTime();
+
+            TimedTask(Runnable runnable, T value) {
+                super(runnable, value);
+            }
+
+            TimedTask(Callable<T> callable) {
+                super(callable);
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    MeteredExecutor.this.cancelled.incrementAndGet();
+                    MeteredExecutor.this.remove(this);
+                }
+                return cancelled;
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "grocery-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
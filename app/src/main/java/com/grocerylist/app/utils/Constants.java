@@ -11,6 +11,12 @@ public class Constants {
 
     public static final String BASE_URL = "https://grocery-backend-285291610580.europe-west1.run.app/";
     public static final String DATE_FORMAT_API = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+    // Send a second sync request if the first hasn't answered by the observed p95
+    public static final boolean HEDGE_SYNC_REQUESTS = true;
+    // WebSocket pushing one ChangeEvent per change, relative to BASE_URL
+    public static final String CHANGE_STREAM_PATH = "api/changes/stream";
+    // Lists are shared by everyone using the backend
+    public static final String DEFAULT_USER_ID = "shared-user";
 
     // ===== DATABASE CONSTANTS =====
 
@@ -20,6 +26,16 @@ public class Constants {
 
     public static final String PREFS_NAME = "grocery_prefs";
     public static final String PREF_LAST_SYNC = "last_sync_time";
+    public static final String PREF_SYNC_CURSOR = "sync_cursor";
+    public static final String PREF_SYNC_ETAG = "sync_etag";
+    // Request the stored ETag belongs to - it is only sent back to that one
+    public static final String PREF_SYNC_ETAG_SCOPE = "sync_etag_scope";
+    // Checkpoint of an interrupted paged full sync
+    public static final String PREF_SYNC_PAGE_TOKEN = "sync_page_token";
+    public static final String PREF_SYNC_PAGE_ROWS = "sync_page_rows";
+    public static final String PREF_SYNC_PAGE_HIGH_WATER = "sync_page_high_water";
+    public static final String PREF_DELETION_WATERMARK = "deletion_watermark";
+    public static final String PREF_LAST_TOMBSTONE_PURGE = "last_tombstone_purge";
 
     // ===== SORT CONSTANTS =====
 
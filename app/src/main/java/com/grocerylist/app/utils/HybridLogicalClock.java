@@ -0,0 +1,96 @@
+package com.grocerylist.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.security.SecureRandom;
+
+/**
+ * Hybrid logical clock (Kulkarni et al.) used to version every row we write.
+ *
+ * A timestamp packs wall-clock milliseconds in the high 48 bits and a logical counter
+ * in the low 16 bits, so it stays close to real time but never goes backwards and always
+ * moves past any timestamp we have seen from another device. A phone with a fast clock
+ * therefore can't keep "winning" merges: everyone else jumps past it on the next edit.
+ * Equal timestamps are ordered by node id, so every device picks the same winner.
+ */
+public class HybridLogicalClock {
+    private static final int LOGICAL_BITS = 16;
+    private static final String PREF_HLC_LAST = "hlc_last";
+    private static final String PREF_HLC_NODE_ID = "hlc_node_id";
+
+    private static volatile HybridLogicalClock instance;
+
+    private final SharedPreferences preferences;
+    private final String nodeId;
+    private long last; // Guarded by this
+
+    public static HybridLogicalClock getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HybridLogicalClock.class) {
+                if (instance == null) {
+                    instance = new HybridLogicalClock(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private HybridLogicalClock(Context context) {
+        this.preferences = context.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE);
+        String storedNodeId = preferences.getString(PREF_HLC_NODE_ID, null);
+        if (storedNodeId == null) {
+            storedNodeId = String.format("%016x", new SecureRandom().nextLong());
+            preferences.edit().putString(PREF_HLC_NODE_ID, storedNodeId).apply();
+        }
+        this.nodeId = storedNodeId;
+        // Survives restarts, so a clock set back while the app was closed can't reuse timestamps
+        this.last = preferences.getLong(PREF_HLC_LAST, 0);
+    }
+
+    /**
+     * Timestamp for a local change
+     */
+    public synchronized long now() {
+        long physical = System.currentTimeMillis() << LOGICAL_BITS;
+        last = physical > last ? physical : last + 1;
+        preferences.edit().putLong(PREF_HLC_LAST, last).apply();
+        return last;
+    }
+
+    /**
+     * Moves the clock past a timestamp received from another device
+     */
+    public synchronized void observe(long remote) {
+        if (remote > last) {
+            last = remote;
+            preferences.edit().putLong(PREF_HLC_LAST, last).apply();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // ===== ORDERING =====
+
+    /**
+     * Rows written before clocks existed have hlc = 0; their updatedAt is lifted into
+     * HLC space so they compare sensibly against stamped rows
+     */
+    public static long versionOf(long hlc, long updatedAt) {
+        return hlc != 0 ? hlc : updatedAt << LOGICAL_BITS;
+    }
+
+    /**
+     * Total order over (version, nodeId). Zero means both sides hold the same write.
+     */
+    public static int compare(long hlcA, long updatedAtA, String nodeA,
+                              long hlcB, long updatedAtB, String nodeB) {
+        int byClock = Long.compare(versionOf(hlcA, updatedAtA), versionOf(hlcB, updatedAtB));
+        if (byClock != 0) {
+            return byClock;
+        }
+        return (nodeA == null ? "" : nodeA).compareTo(nodeB == null ? "" : nodeB);
+    }
+}
@@ -0,0 +1,33 @@
+package com.grocerylist.app.utils;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.grocerylist.app.models.LocalOnly;
+
+/**
+ * The Gson used for everything that crosses the wire: Retrofit bodies, outbox payloads
+ * and streamed sync responses. Fields marked {@link LocalOnly} are skipped both ways.
+ */
+public class JsonUtils {
+
+    public static final Gson GSON = new GsonBuilder()
+            .setExclusionStrategies(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return field.getAnnotation(LocalOnly.class) != null;
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> type) {
+                    return false;
+                }
+            })
+            .create();
+
+    // ===== PRIVATE CONSTRUCTOR =====
+    private JsonUtils() {
+        throw new AssertionError("JsonUtils class cannot be instantiated");
+    }
+}
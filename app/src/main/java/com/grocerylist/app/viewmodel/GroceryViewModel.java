@@ -19,6 +19,7 @@ public class GroceryViewModel extends AndroidViewModel {
     private final MutableLiveData<String> error = new MutableLiveData<>();
     private final MutableLiveData<String> syncStatus = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isRefreshing = new MutableLiveData<>(false);
+    private final MutableLiveData<Integer> syncProgress = new MutableLiveData<>(); // null when not known
 
     public GroceryViewModel(@NonNull Application application) {
         super(application);
@@ -47,6 +48,14 @@ public class GroceryViewModel extends AndroidViewModel {
         return isRefreshing;
     }
 
+    public LiveData<Integer> getSyncProgress() {
+        return syncProgress;
+    }
+
+    public LiveData<Integer> getPendingUploadCount() {
+        return repository.getPendingUploadCount();
+    }
+
     public long getLastSyncTime() {
         return repository.getLastSyncTime();
     }
@@ -55,6 +64,17 @@ public class GroceryViewModel extends AndroidViewModel {
         return repository.getLastSyncDuration();
     }
 
+    /**
+     * How long smartSync currently waits between syncs, and why
+     */
+    public long getSyncIntervalMs() {
+        return repository.getSyncIntervalMs();
+    }
+
+    public String getSyncIntervalReason() {
+        return repository.getSyncIntervalReason();
+    }
+
     public GroceryRepository getRepository() {
         return repository;
     }
@@ -66,7 +86,7 @@ public class GroceryViewModel extends AndroidViewModel {
     }
 
     public void updateList(GroceryList list) {
-        repository.insertList(list, createCallback("Failed to update list"));
+        repository.updateList(list, createCallback("Failed to update list"));
     }
 
     public void deleteList(String listId) {
@@ -84,8 +104,15 @@ public class GroceryViewModel extends AndroidViewModel {
         repository.insertItem(item, createCallback("Failed to add item"));
     }
 
-    public void updateItem(GroceryItem item) {
-        repository.updateItem(item, createCallback("Failed to update item"));
+    /**
+     * @param before the item as the edit found it - only fields that differ from it are written
+     */
+    public void updateItem(GroceryItem before, GroceryItem after) {
+        repository.updateItem(before, after, createCallback("Failed to update item"));
+    }
+
+    public void setItemCompleted(GroceryItem item, boolean completed) {
+        repository.setItemCompleted(item, completed, createCallback("Failed to update item"));
     }
 
     public void deleteItem(String itemId) {
@@ -106,20 +133,67 @@ public class GroceryViewModel extends AndroidViewModel {
         performSync(true);
     }
 
+    /**
+     * Refreshes the visible list first, then catches up on the rest of the account
+     * in the background without the refresh indicator
+     */
+    public void syncList(String listId) {
+        isRefreshing.postValue(true);
+
+        repository.syncList(listId, new GroceryRepository.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                isRefreshing.postValue(false);
+                // Not due if the list sync already fell back to a smart sync
+                if (repository.isSyncDue()) {
+                    repository.smartSync(createCallback("Sync failed"));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.postValue("Sync failed: " + e.getMessage());
+                isRefreshing.postValue(false);
+            }
+        });
+    }
+
+    /**
+     * Call from onStart / onStop of every screen that shows synced data
+     */
+    public void startLiveUpdates() {
+        repository.startLiveUpdates();
+    }
+
+    public void stopLiveUpdates() {
+        repository.stopLiveUpdates();
+    }
+
     private void performSync(boolean forceFull) {
+        if (!forceFull && !repository.isSyncDue()) {
+            // Data is still fresh (usually from the background sync) - don't flash the loading overlay
+            return;
+        }
         isRefreshing.postValue(true);
 
         GroceryRepository.Callback<Void> callback = new GroceryRepository.Callback<Void>() {
             @Override
             public void onSuccess(Void result) {
+                syncProgress.postValue(null);
                 isRefreshing.postValue(false);
             }
 
             @Override
             public void onError(Exception e) {
                 error.postValue("Sync failed: " + e.getMessage());
+                syncProgress.postValue(null);
                 isRefreshing.postValue(false);
             }
+
+            @Override
+            public void onProgress(int percent) {
+                syncProgress.postValue(percent);
+            }
         };
 
         if (forceFull) {
@@ -0,0 +1,195 @@
+package com.grocerylist.app.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemFields;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.SyncData;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Checks the compact sync encoding: it round-trips (patches included), rejects a cut-off payload, and is
+ * smaller on the wire than JSON, both raw and gzipped.
+ * {@link #benchmarkWireFormats} compares bytes on the wire and decode time of both formats;
+ * it is ignored in regular runs since timings aren't asserted.
+ */
+public class WireFormatBenchmarkTest {
+    private static final int LISTS = 40;
+    private static final int ITEMS_PER_LIST = 60;
+    private static final int DECODE_ROUNDS = 20;
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void compactEncodingRoundTrips() throws IOException {
+        SyncData original = createSyncData(2, 3);
+        original.setCursor("cursor-42");
+
+        SyncData decoded = CompactCodec.decode(new ByteArrayInputStream(CompactCodec.encode(original)));
+
+        assertEquals(gson.toJson(original), gson.toJson(decoded));
+    }
+
+    @Test
+    public void compactIsSmallerThanJson() throws IOException {
+        SyncData syncData = createSyncData(LISTS, ITEMS_PER_LIST);
+
+        byte[] json = gson.toJson(syncData).getBytes(StandardCharsets.UTF_8);
+        byte[] compact = CompactCodec.encode(syncData);
+
+        assertTrue(compact.length < json.length);
+        assertTrue(gzip(compact).length < gzip(json).length);
+    }
+
+    @Test
+    public void compactPatchRoundTripsAfterItsItem() throws IOException {
+        SyncData syncData = createSyncData(1, 1);
+        GroceryItem item = syncData.getItems().get(0);
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(ItemFields.COMPLETED, true);
+        fields.put(ItemFields.PRIORITY, 2);
+        fields.put(ItemFields.NOTES, null);
+        fields.put(ItemFields.PRICE, "1.99");
+        ItemPatch patch = new ItemPatch(fields, 77, "other-device", 2000);
+        patch.setId(item.getId());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompactCodec.Writer writer = new CompactCodec.Writer(out);
+        writer.writeList(syncData.getLists().get(0));
+        writer.writeItem(item);
+        writer.writePatch(patch);
+        writer.writeEnd();
+
+        List<String> order = new ArrayList<>();
+        List<ItemPatch> received = new ArrayList<>();
+        ResponseBody body = ResponseBody.create(out.toByteArray(), MediaType.get(CompactCodec.MEDIA_TYPE));
+        new SyncStreamReader(gson, SyncStreamReader.DEFAULT_CHUNK_SIZE).read(body, new SyncStreamReader.ChunkHandler() {
+            @Override
+            public void onLists(List<GroceryList> lists) {
+                order.add("lists");
+            }
+
+            @Override
+            public void onItems(List<GroceryItem> items) {
+                order.add("items");
+            }
+
+            @Override
+            public void onPatches(List<ItemPatch> patches) {
+                order.add("patches");
+                received.addAll(patches);
+            }
+        });
+
+        assertEquals(Arrays.asList("lists", "items", "patches"), order);
+        assertEquals(1, received.size());
+        assertEquals(gson.toJson(patch), gson.toJson(received.get(0)));
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedCompactPayloadIsRejected() throws IOException {
+        byte[] compact = CompactCodec.encode(createSyncData(2, 3));
+
+        // Everything but the end marker
+        CompactCodec.decode(new ByteArrayInputStream(Arrays.copyOf(compact, compact.length - 1)));
+    }
+
+    /**
+     * Run by hand (remove @Ignore, ./gradlew testDebugUnitTest) and check the printed table
+     */
+    @Ignore("Benchmark - prints numbers, asserts nothing")
+    @Test
+    public void benchmarkWireFormats() throws IOException {
+        SyncData syncData = createSyncData(LISTS, ITEMS_PER_LIST);
+
+        byte[] json = gson.toJson(syncData).getBytes(StandardCharsets.UTF_8);
+        byte[] compact = CompactCodec.encode(syncData);
+
+        long jsonNanos = timeDecode(() -> gson.fromJson(new String(json, StandardCharsets.UTF_8), SyncData.class));
+        long compactNanos = timeDecode(() -> CompactCodec.decode(new ByteArrayInputStream(compact)));
+
+        System.out.println("Payload: " + LISTS + " lists, " + (LISTS * ITEMS_PER_LIST) + " items");
+        System.out.println(String.format("%-8s %10s %10s %12s", "format", "raw B", "gzip B", "decode µs"));
+        System.out.println(String.format("%-8s %10d %10d %12d", "json", json.length, gzip(json).length, jsonNanos / 1000));
+        System.out.println(String.format("%-8s %10d %10d %12d", "compact", compact.length, gzip(compact).length, compactNanos / 1000));
+    }
+
+    private interface Decode {
+        Object run() throws IOException;
+    }
+
+    /**
+     * Median of several rounds after a warm-up, to keep JIT noise out of the numbers
+     */
+    private long timeDecode(Decode decode) throws IOException {
+        for (int i = 0; i < 5; i++) {
+            decode.run();
+        }
+        long[] samples = new long[DECODE_ROUNDS];
+        for (int i = 0; i < DECODE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            decode.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[DECODE_ROUNDS / 2];
+    }
+
+    private byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private SyncData createSyncData(int listCount, int itemsPerList) {
+        String[] names = {"Mælk", "Rugbrød", "Æbler", "Kaffe", "Smør", "Havregryn", "Tomater", "Ost"};
+        List<GroceryList> lists = new ArrayList<>();
+        List<GroceryItem> items = new ArrayList<>();
+
+        for (int l = 0; l < listCount; l++) {
+            GroceryList list = new GroceryList("Liste " + l);
+            list.setUserId("shared-user");
+            list.setUpdatedAt(list.getCreatedAt() + l * 1000L);
+            lists.add(list);
+
+            for (int i = 0; i < itemsPerList; i++) {
+                GroceryItem item = new GroceryItem(list.getId(), names[i % names.length]);
+                item.setQuantity(String.valueOf(1 + i % 4));
+                item.setCompleted(i % 3 == 0);
+                item.setPriority(i);
+                item.setUpdatedAt(item.getCreatedAt() + i * 250L);
+                if (i % 5 == 0) {
+                    item.setOnOffer(true);
+                    item.setPrice("12,95");
+                }
+                items.add(item);
+            }
+        }
+
+        return new SyncData(lists, items);
+    }
+}
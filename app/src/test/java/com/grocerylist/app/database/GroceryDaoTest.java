@@ -0,0 +1,161 @@
+package com.grocerylist.app.database;
+
+import android.app.Application;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.grocerylist.app.models.GroceryItem;
+import com.grocerylist.app.models.GroceryList;
+import com.grocerylist.app.models.ItemFields;
+import com.grocerylist.app.models.ItemPatch;
+import com.grocerylist.app.models.PendingOperation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local edits against an in-memory database: an edit only writes the fields the user
+ * changed, so a change merged in while the edit was open is kept. Also covers which
+ * dirty rows are picked up for upload.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(application = Application.class)
+public class GroceryDaoTest {
+    private static final String NODE = "this-device";
+
+    private GroceryDatabase database;
+    private GroceryDao dao;
+    private GroceryList list;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), GroceryDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        dao = database.groceryDao();
+        list = new GroceryList("Weekly");
+        dao.saveList(list);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    // ===== FIELD EDITS =====
+
+    @Test
+    public void checkOffKeepsQuantityMergedMeanwhile() {
+        GroceryItem snapshot = item("1", false);
+        dao.saveItem(snapshot);
+        // Another device changed the quantity after the list was drawn
+        dao.saveItem(item(snapshot.getId(), "3", false));
+
+        GroceryItem checkedOff = item(snapshot.getId(), "1", true);
+        ItemPatch patch = dao.updateItemFields(snapshot.getId(), ItemFields.diff(snapshot, checkedOff), 1, NODE, 1);
+
+        GroceryItem stored = dao.getItemByIdSync(snapshot.getId());
+        assertEquals("3", stored.getQuantity());
+        assertTrue(stored.isCompleted());
+        assertEquals(Collections.singleton(ItemFields.COMPLETED), patch.getFields().keySet());
+    }
+
+    @Test
+    public void quantityEditKeepsCheckOffMergedMeanwhile() {
+        GroceryItem snapshot = item("1", false);
+        dao.saveItem(snapshot);
+        // Ticked off elsewhere while the edit dialog was open
+        dao.saveItem(item(snapshot.getId(), "1", true));
+
+        GroceryItem edited = item(snapshot.getId(), "2", false);
+        ItemPatch patch = dao.updateItemFields(snapshot.getId(), ItemFields.diff(snapshot, edited), 1, NODE, 1);
+
+        GroceryItem stored = dao.getItemByIdSync(snapshot.getId());
+        assertEquals("2", stored.getQuantity());
+        assertTrue(stored.isCompleted());
+        assertTrue(stored.isDirty());
+        assertEquals(Collections.singleton(ItemFields.QUANTITY), patch.getFields().keySet());
+    }
+
+    @Test
+    public void editMatchingStoredRowIsNotAPatch() {
+        GroceryItem snapshot = item("1", false);
+        dao.saveItem(item(snapshot.getId(), "2", false));
+
+        GroceryItem edited = item(snapshot.getId(), "2", false);
+        assertNull(dao.updateItemFields(snapshot.getId(), ItemFields.diff(snapshot, edited), 1, NODE, 1));
+        assertFalse(dao.getItemByIdSync(snapshot.getId()).isDirty());
+    }
+
+    @Test
+    public void editOfDeletedItemDoesNotResurrectIt() {
+        GroceryItem snapshot = item("1", false);
+        GroceryItem deleted = item(snapshot.getId(), "1", false);
+        deleted.setDeleted(true);
+        dao.saveItem(deleted);
+
+        GroceryItem edited = item(snapshot.getId(), "2", false);
+        assertNull(dao.updateItemFields(snapshot.getId(), ItemFields.diff(snapshot, edited), 1, NODE, 1));
+        assertTrue(dao.getItemByIdSync(snapshot.getId()).getIsDeleted());
+    }
+
+    // ===== DIRTY ROWS =====
+
+    @Test
+    public void listLosingToCloudIsNoLongerDirty() {
+        list.setHlc(1);
+        list.setNodeId(NODE);
+        list.setDirty(true);
+        dao.saveList(list);
+
+        GroceryList cloud = new GroceryList("Renamed elsewhere");
+        cloud.setId(list.getId());
+        cloud.setHlc(2);
+        cloud.setNodeId("other-device");
+        cloud.setUpdatedAt(list.getUpdatedAt() + 1);
+        dao.mergeLists(Arrays.asList(cloud));
+
+        assertTrue(dao.getDirtyLists().isEmpty());
+    }
+
+    @Test
+    public void dirtyItemOfListWaitingInOutboxIsLeftToOutbox() {
+        GroceryItem dirty = item("1", false);
+        dirty.setDirty(true);
+        dao.saveItem(dirty);
+        assertEquals(1, dao.getDirtyItems().size());
+
+        database.outboxDao().insert(new PendingOperation(PendingOperation.TYPE_UPSERT_LIST, list.getId(), "{}"));
+
+        assertTrue(dao.getDirtyItems().isEmpty());
+    }
+
+    // ===== HELPERS =====
+
+    private GroceryItem item(String quantity, boolean completed) {
+        GroceryItem item = new GroceryItem(list.getId(), "Milk");
+        item.setQuantity(quantity);
+        item.setCompleted(completed);
+        item.setUpdatedAt(1000);
+        return item;
+    }
+
+    private GroceryItem item(String id, String quantity, boolean completed) {
+        GroceryItem item = item(quantity, completed);
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,226 @@
+package com.grocerylist.app.repository;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.work.Configuration;
+import androidx.work.ListenableWorker;
+import androidx.work.NetworkType;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.WorkerFactory;
+import androidx.work.WorkerParameters;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.TestListenableWorkerBuilder;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs SyncWorker on the JVM, directly and through WorkManager's test driver,
+ * with a fake task instead of the network
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(application = Application.class) // Keeps GroceryApplication from scheduling real work
+public class SyncWorkerTest {
+    private Context context;
+    private FakeTask task;
+    private WorkManager workManager;
+    private TestDriver driver;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        task = new FakeTask();
+
+        Configuration configuration = new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .setWorkerFactory(factory())
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, configuration);
+        workManager = WorkManager.getInstance(context);
+        driver = WorkManagerTestInitHelper.getTestDriver(context);
+    }
+
+    // ===== RESULTS =====
+
+    @Test
+    public void succeedsWhenOutboxDrains() {
+        assertEquals(ListenableWorker.Result.success(), buildWorker(0).doWork());
+        assertEquals(1, task.drains);
+        assertEquals(1, task.syncs);
+    }
+
+    @Test
+    public void retriesWhileOutboxNotEmpty() {
+        task.drained = false;
+
+        assertEquals(ListenableWorker.Result.retry(), buildWorker(0).doWork());
+        // The pull still runs, so the data is fresh even if an upload is stuck
+        assertEquals(1, task.syncs);
+    }
+
+    @Test
+    public void retriesWhenSyncFails() {
+        task.syncError = new IOException("offline");
+
+        assertEquals(ListenableWorker.Result.retry(), buildWorker(0).doWork());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        task.syncError = new IOException("offline");
+
+        assertEquals(ListenableWorker.Result.failure(), buildWorker(SyncWorker.MAX_ATTEMPTS - 1).doWork());
+    }
+
+    // ===== SCHEDULING =====
+
+    @Test
+    public void waitsForConstraints() throws Exception {
+        SyncWorker.enqueue(context);
+        WorkInfo info = single(SyncWorker.UNIQUE_WORK_NAME);
+        assertEquals(NetworkType.CONNECTED, info.getConstraints().getRequiredNetworkType());
+        assertTrue(info.getConstraints().requiresBatteryNotLow());
+
+        driver.setInitialDelayMet(info.getId());
+        assertEquals(WorkInfo.State.ENQUEUED, state(info.getId()));
+        assertEquals(0, task.syncs);
+
+        driver.setAllConstraintsMet(info.getId());
+        assertEquals(WorkInfo.State.SUCCEEDED, state(info.getId()));
+        assertEquals(1, task.syncs);
+    }
+
+    @Test
+    public void coalescesEnqueues() throws Exception {
+        SyncWorker.enqueue(context);
+        SyncWorker.enqueue(context);
+        SyncWorker.enqueue(context);
+
+        WorkInfo info = single(SyncWorker.UNIQUE_WORK_NAME);
+        runNow(info.getId());
+        assertEquals(1, task.syncs);
+    }
+
+    @Test
+    public void editDuringRunChainsFollowUp() throws Exception {
+        SyncWorker.enqueue(context);
+        UUID id = single(SyncWorker.UNIQUE_WORK_NAME).getId();
+        // An edit lands while the run is syncing - after its outbox drain
+        task.onSync = () -> SyncWorker.enqueue(context);
+
+        runNow(id);
+
+        assertEquals(WorkInfo.State.SUCCEEDED, state(id));
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(SyncWorker.UNIQUE_WORK_NAME).get();
+        assertEquals(2, infos.size());
+        for (WorkInfo info : infos) {
+            if (!info.getId().equals(id)) {
+                assertEquals(WorkInfo.State.ENQUEUED, info.getState());
+            }
+        }
+    }
+
+    @Test
+    public void retryIsRescheduled() throws Exception {
+        task.drained = false;
+        SyncWorker.enqueue(context);
+        UUID id = single(SyncWorker.UNIQUE_WORK_NAME).getId();
+
+        runNow(id);
+
+        WorkInfo info = workManager.getWorkInfoById(id).get();
+        assertEquals(WorkInfo.State.ENQUEUED, info.getState());
+        assertEquals(1, info.getRunAttemptCount());
+    }
+
+    @Test
+    public void periodicScheduleIsKept() throws Exception {
+        SyncWorker.schedulePeriodic(context);
+        UUID id = single(SyncWorker.PERIODIC_WORK_NAME).getId();
+        SyncWorker.schedulePeriodic(context);
+        assertEquals(id, single(SyncWorker.PERIODIC_WORK_NAME).getId());
+
+        driver.setAllConstraintsMet(id);
+        driver.setPeriodDelayMet(id);
+        // Periodic work goes back to ENQUEUED for the next period
+        assertEquals(WorkInfo.State.ENQUEUED, state(id));
+        assertEquals(1, task.syncs);
+    }
+
+    // ===== HELPERS =====
+
+    private SyncWorker buildWorker(int runAttemptCount) {
+        return TestListenableWorkerBuilder.from(context, SyncWorker.class)
+                .setWorkerFactory(factory())
+                .setRunAttemptCount(runAttemptCount)
+                .build();
+    }
+
+    private WorkerFactory factory() {
+        return new WorkerFactory() {
+            @Override
+            public ListenableWorker createWorker(@NonNull Context appContext, @NonNull String workerClassName,
+                                                 @NonNull WorkerParameters workerParameters) {
+                return new SyncWorker(appContext, workerParameters, task);
+            }
+        };
+    }
+
+    private WorkInfo single(String uniqueName) throws Exception {
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(uniqueName).get();
+        assertEquals(1, infos.size());
+        return infos.get(0);
+    }
+
+    private WorkInfo.State state(UUID id) throws Exception {
+        return workManager.getWorkInfoById(id).get().getState();
+    }
+
+    private void runNow(UUID id) {
+        driver.setInitialDelayMet(id);
+        driver.setAllConstraintsMet(id);
+    }
+
+    private static class FakeTask implements SyncWorker.Task {
+        boolean drained = true;
+        Exception syncError;
+        Runnable onSync;
+        int drains;
+        int syncs;
+
+        @Override
+        public boolean drainOutbox() {
+            drains++;
+            return drained;
+        }
+
+        @Override
+        public void sync() throws Exception {
+            syncs++;
+            if (onSync != null) {
+                Runnable hook = onSync;
+                onSync = null;
+                hook.run();
+            }
+            if (syncError != null) {
+                throw syncError;
+            }
+        }
+    }
+}